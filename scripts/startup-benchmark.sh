@@ -0,0 +1,149 @@
+#!/usr/bin/env bash
+#
+# Compares the cold start time and memory footprint of the JVM and native builds.
+#
+# Each build is started RUNS times on PORT. A run measures the wall-clock time from launch until
+# /actuator/health/readiness answers, the startup time reported by Spring Boot, and the resident set size right
+# after startup and after WARMUP requests. Results are printed as a summary table and written to
+# target/startup-benchmark.csv. Keycloak does not need to be reachable: the admin token is refreshed
+# in the background and the benchmark requests are rejected before reaching it.
+#
+# Usage: scripts/startup-benchmark.sh [--skip-build] [--jvm-only | --native-only]
+# Environment: RUNS (default 5), WARMUP (default 200), PORT (default 18080), TIMEOUT seconds (default 60),
+#              JAVA_OPTS for the JVM runs, APP_ARGS for both.
+#
+# The native build needs GraalVM (native-image on the PATH or GRAALVM_HOME set).
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+WARMUP=${WARMUP:-200}
+PORT=${PORT:-18080}
+TIMEOUT=${TIMEOUT:-60}
+JAVA_OPTS=${JAVA_OPTS:-}
+APP_ARGS=${APP_ARGS:-}
+BUILD=true
+MODES="jvm native"
+
+for arg in "$@"; do
+    case "$arg" in
+        --skip-build) BUILD=false ;;
+        --jvm-only) MODES="jvm" ;;
+        --native-only) MODES="native" ;;
+        *) echo "Unknown option: $arg" >&2; exit 2 ;;
+    esac
+done
+
+JAR=$(ls target/keycloak-*.jar 2>/dev/null | grep -v original | head -1 || true)
+NATIVE=target/keycloak
+CSV=target/startup-benchmark.csv
+LOG_DIR=target/startup-benchmark
+mkdir -p "$LOG_DIR"
+
+build() {
+    if [[ " $MODES " == *" jvm "* ]]; then
+        echo "Building the JVM jar..."
+        mvn -B -q -DskipTests package
+        JAR=$(ls target/keycloak-*.jar | grep -v original | head -1)
+    fi
+    if [[ " $MODES " == *" native "* ]]; then
+        echo "Building the native image..."
+        mvn -B -q -Pnative -DskipTests native:compile
+    fi
+}
+
+# Prints the resident set size of a process in MiB.
+rss_mib() {
+    awk '/^VmRSS:/ { printf "%.1f", $2 / 1024 }' "/proc/$1/status"
+}
+
+now_millis() {
+    date +%s%3N
+}
+
+# Starts one build, waits for it to answer and prints "startup_ms reported_s rss_start rss_warm".
+run_once() {
+    local mode=$1 run=$2 log="$LOG_DIR/$1-$2.log" pid start ready elapsed
+    local args="--server.port=$PORT $APP_ARGS"
+    start=$(now_millis)
+    if [[ $mode == jvm ]]; then
+        # shellcheck disable=SC2086
+        java $JAVA_OPTS -jar "$JAR" $args >"$log" 2>&1 &
+    else
+        # shellcheck disable=SC2086
+        "$NATIVE" $args >"$log" 2>&1 &
+    fi
+    pid=$!
+
+    ready=""
+    while (( $(now_millis) - start < TIMEOUT * 1000 )); do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "The $mode build exited during startup, see $log" >&2
+            return 1
+        fi
+        # Any HTTP status means the server is up, the health of Keycloak itself is not the concern here
+        if [[ $(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health/readiness") != 000 ]]; then
+            ready=$(now_millis)
+            break
+        fi
+        sleep 0.01
+    done
+    if [[ -z $ready ]]; then
+        kill "$pid" 2>/dev/null || true
+        echo "The $mode build did not answer within ${TIMEOUT}s, see $log" >&2
+        return 1
+    fi
+    elapsed=$(( ready - start ))
+
+    local rss_start rss_warm reported
+    rss_start=$(rss_mib "$pid")
+    for ((i = 0; i < WARMUP; i++)); do
+        curl -s -o /dev/null "http://localhost:$PORT/api/v1/keycloak/admin/users" || true
+    done
+    rss_warm=$(rss_mib "$pid")
+
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    reported=$(sed -n 's/.*Started KeycloakApplication in \([0-9.]*\) seconds.*/\1/p' "$log" | head -1)
+    echo "$elapsed ${reported:-NaN} $rss_start $rss_warm"
+}
+
+# Prints "min median max" of the numbers on stdin.
+stats() {
+    sort -g | awk '{ v[NR] = $1 } END {
+        if (NR == 0) { print "- - -"; exit }
+        m = (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2
+        print v[1], m, v[NR] }'
+}
+
+if $BUILD; then
+    build
+fi
+
+echo "mode,run,startup_ms,reported_s,rss_start_mib,rss_warm_mib" >"$CSV"
+for mode in $MODES; do
+    if [[ $mode == jvm && ( -z $JAR || ! -f $JAR ) ]]; then
+        echo "No jar in target/, run without --skip-build" >&2; exit 1
+    fi
+    if [[ $mode == native && ! -x $NATIVE ]]; then
+        echo "No native image at $NATIVE, run without --skip-build on GraalVM" >&2; exit 1
+    fi
+    for ((run = 1; run <= RUNS; run++)); do
+        result=$(run_once "$mode" "$run")
+        echo "$mode run $run: $result"
+        echo "$mode,$run,${result// /,}" >>"$CSV"
+    done
+done
+
+echo
+printf '%-7s %-28s %-28s %-28s\n' mode "startup ms (min/med/max)" "rss MiB start (min/med/max)" "rss MiB warm (min/med/max)"
+for mode in $MODES; do
+    printf '%-7s %-28s %-28s %-28s\n' "$mode" \
+        "$(awk -F, -v m="$mode" '$1 == m { print $3 }' "$CSV" | stats)" \
+        "$(awk -F, -v m="$mode" '$1 == m { print $5 }' "$CSV" | stats)" \
+        "$(awk -F, -v m="$mode" '$1 == m { print $6 }' "$CSV" | stats)"
+done
+echo
+echo "Raw results in $CSV, logs in $LOG_DIR"
@@ -0,0 +1,65 @@
+package com.ibetar.keycloak.jwt;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Realistic Keycloak access token shapes used by the benchmarks.
+ */
+final class BenchmarkTokens {
+    static final String RESOURCE_ID = "auth-service-api-gateway";
+
+    private BenchmarkTokens() {
+    }
+
+    /**
+     * Builds a token with the given number of scopes and resource_access clients.
+     *
+     * @param scopes        The number of space-separated scopes.
+     * @param clients       The number of clients in resource_access, besides the resource server.
+     * @param rolesPerEntry The number of roles per client, zero for a token without roles.
+     */
+    static Jwt token(int scopes, int clients, int rolesPerEntry) {
+        StringJoiner scope = new StringJoiner(" ");
+        scope.add("openid").add("profile").add("email");
+        for (int i = 3; i < scopes; i++) {
+            scope.add("scope-" + i);
+        }
+        Map<String, Object> resourceAccess = new HashMap<>();
+        for (int c = 0; c < clients; c++) {
+            resourceAccess.put("client-" + c, Map.of("roles", roles("client-" + c, rolesPerEntry)));
+        }
+        if (rolesPerEntry > 0) {
+            resourceAccess.put(RESOURCE_ID, Map.of("roles", roles("ROLE", rolesPerEntry)));
+        }
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("header.payload.signature-" + UUID.randomUUID())
+                .header("alg", "RS256")
+                .header("kid", "benchmark-key")
+                .jti(UUID.randomUUID().toString())
+                .issuer("http://localhost:8080/realms/spring-boot-realm-dev")
+                .subject(UUID.randomUUID().toString())
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .claim("preferred_username", "benchmark-user")
+                .claim("scope", scope.toString())
+                .claim("resource_access", resourceAccess)
+                .claim("realm_access", Map.of("roles", roles("realm", rolesPerEntry)))
+                .build();
+    }
+
+    private static List<String> roles(String prefix, int count) {
+        List<String> roles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            roles.add(prefix + "-" + i);
+        }
+        return roles;
+    }
+}
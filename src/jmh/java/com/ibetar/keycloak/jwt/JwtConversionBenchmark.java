@@ -0,0 +1,88 @@
+package com.ibetar.keycloak.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request cost of turning a verified JWT into an authentication.
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; the gc profiler reports the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtConversionBenchmark {
+
+    /**
+     * Token shape as scopes:clients:roles-per-client.
+     */
+    @Param({"5:0:0", "40:0:0", "10:5:5", "40:50:20"})
+    public String shape;
+
+    private Jwt jwt;
+    private MappingJwtGrantedAuthoritiesConverter precompiled;
+    private MappingJwtGrantedAuthoritiesConverter uncompiled;
+    private JwtAuthConverter uncachedConverter;
+    private JwtAuthConverter cachedConverter;
+
+    @Setup
+    public void setUp() {
+        String[] parts = shape.split(":");
+        jwt = BenchmarkTokens.token(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+
+        Map<String, String> mapping = new HashMap<>();
+        for (int i = 3; i < 40; i += 2) {
+            mapping.put("scope-" + i, "mapped-" + i);
+        }
+        precompiled = new MappingJwtGrantedAuthoritiesConverter(mapping);
+        uncompiled = new MappingJwtGrantedAuthoritiesConverter(mapping);
+        uncompiled.setPrecompiled(false);
+
+        uncachedConverter = converter(precompiled, new JwtAuthenticationCache(false, 0));
+        cachedConverter = converter(precompiled, new JwtAuthenticationCache(true, 10_000));
+    }
+
+    @Benchmark
+    public Collection<String> parseScopesClaim() {
+        return precompiled.parseScopesClaim(jwt);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> mappingConvertPrecompiled() {
+        return precompiled.convert(jwt);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> mappingConvertUncompiled() {
+        return uncompiled.convert(jwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken authConvertUncached() {
+        return uncachedConverter.convert(jwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken authConvertCached() {
+        return cachedConverter.convert(jwt);
+    }
+
+    private static JwtAuthConverter converter(MappingJwtGrantedAuthoritiesConverter mapping,
+                                              JwtAuthenticationCache cache) {
+        JwtAuthConverter converter = new JwtAuthConverter(mapping, cache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(converter, "keyCloakPrincipalAttr", "preferred_username");
+        ReflectionTestUtils.setField(converter, "resourceId", BenchmarkTokens.RESOURCE_ID);
+        return converter;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.entity.UserDTO;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of mapping a UserDTO to the UserRepresentation sent to Keycloak.
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; the gc profiler reports the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMappingBenchmark {
+    private KeyCloakService service;
+    private UserDTO withRoles;
+    private UserDTO withoutRoles;
+
+    @Setup
+    public void setUp() {
+        // Only the mapping is exercised, which needs none of the collaborators
+        service = new KeyCloakService(null, null, null, null, null, null, null, null, null);
+        withRoles = new UserDTO("benchmark-user", "benchmark@mail.com", "Bench", "Mark", "secret", true,
+                List.of("ADMIN", "PERSON", "ENTERPRISE"));
+        withoutRoles = new UserDTO("benchmark-user", "benchmark@mail.com", "Bench", "Mark", "secret", true, null);
+    }
+
+    @Benchmark
+    public UserRepresentation buildWithRoles() {
+        return service.buildUserRepresentationFromDTO(withRoles);
+    }
+
+    @Benchmark
+    public UserRepresentation buildWithoutRoles() {
+        return service.buildUserRepresentationFromDTO(withoutRoles);
+    }
+}
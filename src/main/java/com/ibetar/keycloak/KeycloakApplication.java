@@ -1,9 +1,14 @@
 package com.ibetar.keycloak;
 
+import com.ibetar.keycloak.config.KeyCloakRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(KeyCloakRuntimeHints.class)
 public class KeycloakApplication {
 
 	public static void main(String[] args) {
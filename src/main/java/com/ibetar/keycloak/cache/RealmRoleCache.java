@@ -0,0 +1,198 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.utils.KeyCloakProvider;
+import com.ibetar.keycloak.utils.KeyCloakResilience;
+import com.ibetar.keycloak.utils.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of realm role representations keyed by realm.
+ * Each realm's role catalogue is loaded with a single {@code roles().list()} call and indexed
+ * by lower-cased role name, so resolving a role during user creation is a map lookup.
+ * Catalogues expire after {@code keycloak.roles.cache-ttl} and can be invalidated explicitly. A lookup of
+ * an unknown role reloads a catalogue older than {@code keycloak.roles.miss-reload-interval} once, so roles
+ * created in Keycloak after the load are found without waiting for the TTL.
+ * Concurrent reloads of the same realm share a single upstream call.
+ */
+@Slf4j
+@Component
+public class RealmRoleCache implements MeterBinder {
+    private final KeyCloakProvider keyCloakProvider;
+    private final KeyCloakResilience resilience;
+    private final Duration ttl;
+    private final long missReloadIntervalNanos;
+    private final Map<String, Catalogue> catalogues = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final SingleFlight<String, Catalogue> loads = new SingleFlight<>("roles.list");
+
+    public RealmRoleCache(KeyCloakProvider keyCloakProvider, KeyCloakProperties properties,
+                          KeyCloakResilience resilience) {
+        this.keyCloakProvider = keyCloakProvider;
+        this.resilience = resilience;
+        this.ttl = properties.getRoles().getCacheTtl();
+        this.missReloadIntervalNanos = properties.getRoles().getMissReloadInterval().toNanos();
+    }
+
+    /**
+     * Looks up a realm role by name, ignoring case.
+     *
+     * @param realm    The realm owning the role.
+     * @param roleName The name of the role.
+     * @return The RoleRepresentation, or empty if the realm has no such role.
+     */
+    public Optional<RoleRepresentation> find(String realm, String roleName) {
+        Catalogue catalogue = catalogue(realm);
+        RoleRepresentation role = catalogue.byName().get(normalize(roleName));
+        if (role == null && reloadOnMiss(realm, catalogue)) {
+            role = catalogue(realm).byName().get(normalize(roleName));
+        }
+        return Optional.ofNullable(role);
+    }
+
+    /**
+     * Resolves the given role names against the realm's catalogue, ignoring case.
+     * Unknown role names are skipped, after one reload of the catalogue if it is not fresh.
+     *
+     * @param realm     The realm owning the roles.
+     * @param roleNames The names of the roles to resolve.
+     * @return List of RoleRepresentation objects for the known role names.
+     */
+    public List<RoleRepresentation> resolve(String realm, Collection<String> roleNames) {
+        Catalogue catalogue = catalogue(realm);
+        if (!catalogue.containsAll(roleNames) && reloadOnMiss(realm, catalogue)) {
+            catalogue = catalogue(realm);
+        }
+        Map<String, RoleRepresentation> byName = catalogue.byName();
+        List<RoleRepresentation> roles = new ArrayList<>(roleNames.size());
+        for (String roleName : roleNames) {
+            RoleRepresentation role = byName.get(normalize(roleName));
+            if (role == null) {
+                log.warn("Role {} not found in realm {}", roleName, realm);
+            } else if (!roles.contains(role)) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Drops the cached catalogue of a realm, the next lookup reloads it.
+     *
+     * @param realm The realm to invalidate.
+     */
+    public void invalidate(String realm) {
+        catalogues.remove(realm);
+    }
+
+    /**
+     * Drops every cached catalogue.
+     */
+    public void invalidateAll() {
+        catalogues.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return catalogues.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, RealmRoleCache::getHitCount)
+                .tags("cache", "realm-roles", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, RealmRoleCache::getMissCount)
+                .tags("cache", "realm-roles", "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", this, RealmRoleCache::size)
+                .tag("cache", "realm-roles")
+                .register(registry);
+        loads.bindTo(registry);
+    }
+
+    private Catalogue catalogue(String realm) {
+        Catalogue cached = catalogues.get(realm);
+        if (cached != null && !cached.isExpired()) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return loads.execute(realm, () -> {
+            Catalogue loaded = load(realm);
+            catalogues.put(realm, loaded);
+            return loaded;
+        });
+    }
+
+    /**
+     * Drops a catalogue that missed a role, unless it was loaded too recently to be worth reloading.
+     * Only the first of concurrent misses on the same catalogue drops it, the others share the reload.
+     *
+     * @return Whether the catalogue should be read again.
+     */
+    private boolean reloadOnMiss(String realm, Catalogue catalogue) {
+        if (System.nanoTime() - catalogue.loadedAtNanos() < missReloadIntervalNanos) {
+            return false;
+        }
+        catalogues.remove(realm, catalogue);
+        log.info("Reloading role catalogue of realm {} after an unknown role", realm);
+        return true;
+    }
+
+    private Catalogue load(String realm) {
+        log.info("Loading role catalogue of realm {}", realm);
+        List<RoleRepresentation> roles = resilience.read("roles.list",
+                () -> keyCloakProvider.getRealmResource(realm).roles().list());
+        Map<String, RoleRepresentation> byName = new HashMap<>(roles.size() * 2);
+        for (RoleRepresentation role : roles) {
+            byName.put(normalize(role.getName()), role);
+        }
+        long now = System.nanoTime();
+        return new Catalogue(Map.copyOf(byName), now, now + ttl.toNanos());
+    }
+
+    private static String normalize(String roleName) {
+        return roleName.toLowerCase(Locale.ROOT);
+    }
+
+    private record Catalogue(Map<String, RoleRepresentation> byName, long loadedAtNanos, long expiresAtNanos) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+
+        boolean containsAll(Collection<String> roleNames) {
+            for (String roleName : roleNames) {
+                if (!byName.containsKey(normalize(roleName))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
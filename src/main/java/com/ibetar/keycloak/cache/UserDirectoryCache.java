@@ -0,0 +1,215 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-process cache of exact username lookups, bounded to {@code keycloak.user-cache.max-size}
+ * entries with least-recently-used eviction and a per-entry TTL.
+ * A secondary index maps user ids to usernames so that mutations addressed by id can evict
+ * the matching entry. Only non-empty lookups are cached, so a user created elsewhere is never
+ * hidden by a cached miss.
+ * <p>
+ * Every eviction advances a generation. A lookup that was in flight while a user changed may carry the
+ * representation from before the change, so {@link #putIfUnchanged} drops results fetched across one.
+ */
+@Component
+public class UserDirectoryCache implements MeterBinder {
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> byUsername;
+    private final Map<String, String> usernameById = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation;
+
+    public UserDirectoryCache(KeyCloakProperties properties) {
+        KeyCloakProperties.UserCache settings = properties.getUserCache();
+        this.enabled = settings.isEnabled();
+        this.maxSize = settings.getMaxSize();
+        this.ttlNanos = settings.getTtl().toNanos();
+        this.byUsername = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserDirectoryCache.this.maxSize) {
+                    unindex(eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up the cached result of an exact username search.
+     *
+     * @param username The username searched for.
+     * @return The cached users, or empty on a miss.
+     */
+    public synchronized Optional<List<UserRepresentation>> get(String username) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String key = normalize(username);
+        Entry entry = byUsername.get(key);
+        if (entry == null || System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            if (entry != null) {
+                byUsername.remove(key);
+                unindex(entry);
+            }
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(entry.users());
+    }
+
+    /**
+     * Caches the result of an exact username search, ignoring empty results.
+     *
+     * @param username The username searched for.
+     * @param users    The users returned by Keycloak.
+     */
+    public synchronized void put(String username, List<UserRepresentation> users) {
+        if (!enabled || users == null || users.isEmpty()) {
+            return;
+        }
+        String key = normalize(username);
+        Entry previous = byUsername.remove(key);
+        if (previous != null) {
+            unindex(previous);
+        }
+        Entry entry = new Entry(key, List.copyOf(users), System.nanoTime() + ttlNanos);
+        byUsername.put(key, entry);
+        for (UserRepresentation user : entry.users()) {
+            if (user.getId() != null) {
+                usernameById.put(user.getId(), key);
+            }
+        }
+    }
+
+    /**
+     * Returns the current generation, to be read before fetching a lookup that is cached afterwards.
+     *
+     * @return The number of evictions requested so far.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches the result of an exact username search unless an eviction happened since it was fetched.
+     * The id of a user being looked up for the first time is not indexed yet, so any eviction counts.
+     *
+     * @param username   The username searched for.
+     * @param users      The users returned by Keycloak.
+     * @param generation The generation read before the search was sent.
+     * @return Whether the result was cached.
+     */
+    public synchronized boolean putIfUnchanged(String username, List<UserRepresentation> users, long generation) {
+        if (this.generation != generation) {
+            return false;
+        }
+        put(username, users);
+        return true;
+    }
+
+    /**
+     * Evicts the entry of a username.
+     *
+     * @param username The username to evict.
+     */
+    public synchronized void evictUsername(String username) {
+        if (username == null) {
+            return;
+        }
+        generation++;
+        Entry entry = byUsername.remove(normalize(username));
+        if (entry != null) {
+            unindex(entry);
+        }
+    }
+
+    /**
+     * Evicts the entry holding the user with the given id.
+     *
+     * @param userId The id of the user to evict.
+     */
+    public synchronized void evictUserId(String userId) {
+        generation++;
+        String username = usernameById.remove(userId);
+        if (username != null) {
+            evictUsername(username);
+        }
+    }
+
+    /**
+     * Evicts every entry.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        byUsername.clear();
+        usernameById.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return byUsername.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, UserDirectoryCache::getHitCount)
+                .tags("cache", "user-directory", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, UserDirectoryCache::getMissCount)
+                .tags("cache", "user-directory", "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", this, UserDirectoryCache::size)
+                .tag("cache", "user-directory")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, UserDirectoryCache::getEvictionCount)
+                .tag("cache", "user-directory")
+                .register(registry);
+    }
+
+    private void unindex(Entry entry) {
+        for (UserRepresentation user : entry.users()) {
+            if (user.getId() != null) {
+                usernameById.remove(user.getId(), entry.username());
+            }
+        }
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(String username, List<UserRepresentation> users, long expiresAtNanos) {}
+}
@@ -0,0 +1,131 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.utils.KeyCloakProvider;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.EventRepresentation;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional background delta sync of the {@link UserDirectoryCache}.
+ * Every {@code keycloak.user-cache.sync-interval} it reads the realm's admin events on users and
+ * the profile update events newer than the previous poll, and evicts the affected users and
+ * advances their {@link UserVersions}, so changes
+ * made outside this service are picked up. Requires admin and user events to be enabled on the realm.
+ * A zero interval disables the sync.
+ */
+@Slf4j
+@Component
+public class UserDirectorySync {
+    private static final int PAGE_SIZE = 100;
+    private static final List<String> PROFILE_EVENT_TYPES = List.of("UPDATE_PROFILE", "UPDATE_EMAIL", "DELETE_ACCOUNT");
+    private final KeyCloakProvider keyCloakProvider;
+    private final UserDirectoryCache cache;
+    private final UserVersions versions;
+    private final ScheduledExecutorService scheduler;
+    private volatile long lastSeen = System.currentTimeMillis();
+
+    public UserDirectorySync(KeyCloakProvider keyCloakProvider,
+                             UserDirectoryCache cache,
+                             UserVersions versions,
+                             KeyCloakProperties properties) {
+        this.keyCloakProvider = keyCloakProvider;
+        this.cache = cache;
+        this.versions = versions;
+        long interval = properties.getUserCache().getSyncInterval().toMillis();
+        if (interval > 0 && properties.getUserCache().isEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "keycloak-user-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Evicts the users changed since the previous poll.
+     */
+    public void sync() {
+        long since = lastSeen;
+        long newest = since;
+        try {
+            RealmResource realm = keyCloakProvider.getRealmResource();
+            // Keycloak filters events by day only, the exact cut-off is applied on the event time
+            String dateFrom = LocalDate.ofEpochDay(since / 86_400_000L).minusDays(1).toString();
+            int evicted = 0;
+
+            for (int first = 0; ; first += PAGE_SIZE) {
+                List<AdminEventRepresentation> events = realm.getAdminEvents(
+                        null, null, null, null, null, "users/*", dateFrom, null, first, PAGE_SIZE);
+                boolean older = false;
+                for (AdminEventRepresentation event : events) {
+                    if (event.getTime() <= since) {
+                        older = true;
+                        continue;
+                    }
+                    newest = Math.max(newest, event.getTime());
+                    cache.evictUserId(userIdOf(event.getResourcePath()));
+                    versions.userIdChanged(userIdOf(event.getResourcePath()));
+                    evicted++;
+                }
+                if (older || events.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            for (int first = 0; ; first += PAGE_SIZE) {
+                List<EventRepresentation> events = realm.getEvents(
+                        PROFILE_EVENT_TYPES, null, null, dateFrom, null, null, first, PAGE_SIZE);
+                boolean older = false;
+                for (EventRepresentation event : events) {
+                    if (event.getTime() <= since) {
+                        older = true;
+                        continue;
+                    }
+                    newest = Math.max(newest, event.getTime());
+                    cache.evictUserId(event.getUserId());
+                    versions.userIdChanged(event.getUserId());
+                    evicted++;
+                }
+                if (older || events.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+            lastSeen = newest;
+            if (evicted > 0) {
+                log.debug("User directory sync evicted {} users", evicted);
+            }
+        } catch (Exception e) {
+            log.warn("User directory sync failed, invalidating cache: {}", e.getMessage());
+            // Changes may have been missed, fall back to a clean cache
+            cache.invalidateAll();
+            versions.invalidateAll();
+            lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static String userIdOf(String resourcePath) {
+        // Resource paths look like "users/{id}" or "users/{id}/role-mappings/realm"
+        String[] segments = resourcePath.split("/");
+        return segments.length > 1 ? segments[1] : resourcePath;
+    }
+}
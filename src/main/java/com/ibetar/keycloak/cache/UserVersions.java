@@ -0,0 +1,158 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Version stamps of users and user listings, used as ETags for conditional GETs.
+ * Every mutation made through the service advances a logical clock: the listing version is the
+ * clock itself and each changed username is stamped with it, so a poll can be answered with 304
+ * before anything is fetched from Keycloak. A change addressed by an id whose username is unknown
+ * advances the baseline shared by every user.
+ * <p>
+ * Changes made outside this service are only seen through {@link UserDirectorySync}, so ETags also
+ * roll over every {@code keycloak.etags.max-age}, which bounds how long a stale response is confirmed.
+ */
+@Component
+public class UserVersions implements MeterBinder {
+    private final boolean enabled;
+    private final long maxAgeMillis;
+    private final int maxSize;
+    // Distinguishes the ETags of different instances and restarts, whose clocks start over
+    private final String instance = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final Map<String, Long> stampByUsername;
+    private final Map<String, String> usernameById = new HashMap<>();
+    private long clock;
+    private long baseline;
+    private long changes;
+
+    public UserVersions(KeyCloakProperties properties) {
+        KeyCloakProperties.Etags settings = properties.getEtags();
+        this.enabled = settings.isEnabled();
+        this.maxAgeMillis = Math.max(1, settings.getMaxAge().toMillis());
+        this.maxSize = properties.getUserCache().getMaxSize();
+        this.stampByUsername = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > UserVersions.this.maxSize) {
+                    // Forgetting a stamp must never bring back an older ETag
+                    baseline = Math.max(baseline, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the ETag of a listing.
+     *
+     * @param key Identifies the listing, e.g. its paging and projection.
+     * @return The weak ETag of the listing.
+     */
+    public synchronized String listingTag(String key) {
+        return tag(clock, key);
+    }
+
+    /**
+     * Computes the ETag of a username lookup.
+     *
+     * @param username The username looked up.
+     * @param key      Identifies the rendering, e.g. the projection.
+     * @return The weak ETag of the lookup.
+     */
+    public synchronized String userTag(String username, String key) {
+        String normalized = normalize(username);
+        long stamp = Math.max(baseline, stampByUsername.getOrDefault(normalized, 0L));
+        return tag(stamp, normalized + "|" + key);
+    }
+
+    /**
+     * Remembers the ids of the users returned for a username, so changes by id can be attributed.
+     *
+     * @param username The username looked up.
+     * @param users    The users returned by Keycloak.
+     */
+    public synchronized void remember(String username, List<UserRepresentation> users) {
+        if (usernameById.size() >= maxSize) {
+            usernameById.clear();
+        }
+        for (UserRepresentation user : users) {
+            if (user.getId() != null) {
+                usernameById.put(user.getId(), normalize(username));
+            }
+        }
+    }
+
+    /**
+     * Records a change of the user with the given username.
+     *
+     * @param username The username of the changed user.
+     */
+    public synchronized void usernameChanged(String username) {
+        if (username == null) {
+            return;
+        }
+        changes++;
+        stampByUsername.put(normalize(username), ++clock);
+    }
+
+    /**
+     * Records a change of the user with the given id.
+     * When the username of the id is unknown every user is considered changed.
+     *
+     * @param userId The id of the changed user.
+     */
+    public synchronized void userIdChanged(String userId) {
+        String username = usernameById.get(userId);
+        if (username != null) {
+            usernameChanged(username);
+        } else {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Considers every user and listing changed.
+     */
+    public synchronized void invalidateAll() {
+        changes++;
+        baseline = ++clock;
+        stampByUsername.clear();
+    }
+
+    public synchronized long getChangeCount() {
+        return changes;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("keycloak.user.versions.changes", this, UserVersions::getChangeCount)
+                .description("Changes that invalidated user or listing ETags")
+                .register(registry);
+    }
+
+    private String tag(long version, String key) {
+        long window = System.currentTimeMillis() / maxAgeMillis;
+        return "W/\"%s-%x-%x-%08x\"".formatted(instance, version, window, key.hashCode());
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ibetar.keycloak.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration class for the executors used by Keycloak admin operations.
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * The default application executor used by Spring MVC async requests.
+     * Declared explicitly because defining any other executor bean backs off Spring Boot's own.
+     *
+     * @param builder The builder configured from the {@code spring.task.execution.*} properties.
+     * @return The application ThreadPoolTaskExecutor.
+     */
+    @Lazy
+    @Bean(name = {
+            TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Worker pool shared by bulk operations, sized by {@code keycloak.bulk.max-concurrency}.
+     *
+     * @param properties The Keycloak properties.
+     * @return The ThreadPoolTaskExecutor running bulk items.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor keycloakBulkExecutor(KeyCloakProperties properties) {
+        int size = properties.getBulk().getMaxConcurrency();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("keycloak-bulk-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Worker pool running file imports, sized by {@code keycloak.imports.max-concurrent-jobs}.
+     *
+     * @param properties The Keycloak properties.
+     * @return The ThreadPoolTaskExecutor running import jobs.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor keycloakImportExecutor(KeyCloakProperties properties) {
+        int size = properties.getImports().getMaxConcurrentJobs();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setThreadNamePrefix("keycloak-import-");
+        return executor;
+    }
+
+    /**
+     * Executor running asynchronous Keycloak admin calls.
+     * Uses a virtual thread per task when the JDK provides them (21+), and otherwise falls back to a
+     * pool of {@code keycloak.async.platform-threads} platform threads.
+     *
+     * @param properties The Keycloak properties.
+     * @return The ExecutorService running asynchronous admin calls.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService keycloakAsyncExecutor(KeyCloakProperties properties) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            log.info("Running asynchronous Keycloak calls on virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int size = properties.getAsync().getPlatformThreads();
+            log.info("Virtual threads unavailable, running asynchronous Keycloak calls on {} platform threads", size);
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(size, runnable -> {
+                Thread thread = new Thread(runnable, "keycloak-async-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
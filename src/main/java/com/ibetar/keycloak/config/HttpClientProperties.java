@@ -0,0 +1,80 @@
+package com.ibetar.keycloak.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties bound from the {@code http-client.*} section of application.yml.
+ * Sizes and times the pooled HTTP client shared by outbound calls, see
+ * {@link com.ibetar.keycloak.utils.PooledHttpClientFactory}. Every setting of {@code defaults} can be
+ * overridden for a single target in {@code routes}, keyed by its base URL, e.g. "http://localhost:8080".
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+    /**
+     * The maximum number of pooled connections across all routes.
+     */
+    private int maxTotal = 50;
+    /**
+     * Connections idle for longer are closed by the background evictor.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    /**
+     * Connections are never reused after this age.
+     */
+    private Duration timeToLive = Duration.ofMinutes(5);
+    /**
+     * Pooled connections idle for longer are checked before they are reused.
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    private final Route defaults = Route.defaults();
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    /**
+     * Settings of one route. Null settings fall back to {@code defaults}.
+     */
+    @Getter
+    @Setter
+    public static class Route {
+        private Integer maxConnections;
+        private Duration connectTimeout;
+        private Duration readTimeout;
+        private Duration connectionRequestTimeout;
+        private Duration keepAlive;
+
+        private static Route defaults() {
+            Route route = new Route();
+            route.setMaxConnections(20);
+            route.setConnectTimeout(Duration.ofSeconds(5));
+            route.setReadTimeout(Duration.ofSeconds(10));
+            route.setConnectionRequestTimeout(Duration.ofSeconds(5));
+            route.setKeepAlive(Duration.ofSeconds(30));
+            return route;
+        }
+
+        /**
+         * Fills the unset settings of this route from the defaults.
+         *
+         * @param defaults The default route settings.
+         * @return A Route with every setting present.
+         */
+        public Route orElse(Route defaults) {
+            Route route = new Route();
+            route.setMaxConnections(maxConnections != null ? maxConnections : defaults.getMaxConnections());
+            route.setConnectTimeout(connectTimeout != null ? connectTimeout : defaults.getConnectTimeout());
+            route.setReadTimeout(readTimeout != null ? readTimeout : defaults.getReadTimeout());
+            route.setConnectionRequestTimeout(connectionRequestTimeout != null
+                    ? connectionRequestTimeout : defaults.getConnectionRequestTimeout());
+            route.setKeepAlive(keepAlive != null ? keepAlive : defaults.getKeepAlive());
+            return route;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.ibetar.keycloak.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties bound from the {@code keycloak.*} section of application.yml.
+ * Holds the connection details for the Keycloak admin client, together with the
+ * connection pool and token refresh settings used by {@link com.ibetar.keycloak.utils.KeyCloakProvider}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "keycloak")
+public class KeyCloakProperties {
+    /**
+     * The URL of the Keycloak server, e.g. "http://localhost:8080".
+     */
+    private String serverUrl = "http://localhost:8080";
+    /**
+     * The name of the realm managed by this service, e.g. "spring-boot-realm-dev".
+     */
+    private String realmName;
+    /**
+     * The realm the admin user authenticates against, usually "master".
+     */
+    private String realmMaster = "master";
+    /**
+     * The client id used by the admin client, often "admin-cli".
+     */
+    private String adminCli = "admin-cli";
+    /**
+     * The username of the admin user for the Keycloak admin console.
+     */
+    private String userConsole;
+    /**
+     * The password of the admin user for the Keycloak admin console.
+     */
+    private String userPassword;
+    /**
+     * The client secret of the admin client, leave empty for a public client.
+     */
+    private String clientSecret;
+
+    private final Pool pool = new Pool();
+    private final Token token = new Token();
+    private final Roles roles = new Roles();
+    private final Bulk bulk = new Bulk();
+    private final Imports imports = new Imports();
+    private final UserCache userCache = new UserCache();
+    private final Async async = new Async();
+    private final Etags etags = new Etags();
+    private final Logout logout = new Logout();
+    private final Resilience resilience = new Resilience();
+
+    /**
+     * Settings of the HTTP connection pool shared by every admin call.
+     */
+    @Getter
+    @Setter
+    public static class Pool {
+        private int size = 20;
+        private int maxPerRoute = 20;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration readTimeout = Duration.ofSeconds(30);
+        private Duration checkoutTimeout = Duration.ofSeconds(5);
+        private Duration connectionTtl = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Settings of the admin access token cache.
+     * The token is refreshed once its remaining validity drops below {@code minValidity};
+     * a background refresh runs every {@code refreshInterval} so request threads rarely pay for it.
+     * A zero refresh interval disables the background refresh.
+     */
+    @Getter
+    @Setter
+    public static class Token {
+        private Duration minValidity = Duration.ofSeconds(30);
+        private Duration refreshInterval = Duration.ofSeconds(20);
+    }
+
+    /**
+     * Settings of the realm role catalogue cache.
+     * A lookup of an unknown role reloads a catalogue loaded more than {@code missReloadInterval} ago.
+     */
+    @Getter
+    @Setter
+    public static class Roles {
+        private Duration cacheTtl = Duration.ofMinutes(5);
+        private Duration missReloadInterval = Duration.ofSeconds(1);
+        private String defaultRole = "user";
+    }
+
+    /**
+     * Settings of bulk operations.
+     * {@code concurrency} is the default number of items processed in parallel per batch,
+     * {@code maxConcurrency} caps the per-batch value and sizes the shared worker pool.
+     */
+    @Getter
+    @Setter
+    public static class Bulk {
+        private int concurrency = 8;
+        private int maxConcurrency = 32;
+    }
+
+    /**
+     * Settings of file imports.
+     * Files are read from and uploaded to {@code directory}; {@code chunkSize} records are created
+     * and checkpointed at a time, and at most {@code maxConcurrentJobs} imports run at once.
+     */
+    @Getter
+    @Setter
+    public static class Imports {
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "keycloak-imports");
+        private int chunkSize = 500;
+        private int maxConcurrentJobs = 2;
+    }
+
+    /**
+     * Settings of the username lookup cache.
+     * A zero {@code syncInterval} disables the background delta sync from Keycloak events.
+     */
+    @Getter
+    @Setter
+    public static class UserCache {
+        private boolean enabled = true;
+        private int maxSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(5);
+        private Duration syncInterval = Duration.ZERO;
+    }
+
+    /**
+     * Settings of the asynchronous admin calls.
+     * Reads and writes are limited separately and wait at most {@code maxWait} for a free slot.
+     * {@code platformThreads} sizes the fallback pool used on JDKs without virtual threads.
+     */
+    @Getter
+    @Setter
+    public static class Async {
+        private int readConcurrency = 64;
+        private int writeConcurrency = 16;
+        private Duration maxWait = Duration.ofSeconds(2);
+        private int platformThreads = 100;
+    }
+
+    /**
+     * Settings of the ETags of user lookups and listings.
+     * ETags follow the changes made through this service and roll over every {@code maxAge},
+     * which bounds how long a change made elsewhere can go unnoticed by a polling client.
+     */
+    @Getter
+    @Setter
+    public static class Etags {
+        private boolean enabled = true;
+        private Duration maxAge = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Settings of the asynchronous logout propagation to Keycloak.
+     * Logouts wait in a queue of {@code queueCapacity} entries and are sent one at a time by each of
+     * {@code workers} threads. Failed calls are retried with jittered backoff up to {@code maxAttempts}
+     * times and then written to the dead-letter log.
+     */
+    @Getter
+    @Setter
+    public static class Logout {
+        private int queueCapacity = 1000;
+        private int workers = 2;
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(500);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Settings of the resilience layer around admin calls.
+     * {@code timeouts} maps operation names, e.g. "users.search", to their read timeout; other
+     * operations use {@code defaultTimeout}. Only reads are retried.
+     */
+    @Getter
+    @Setter
+    public static class Resilience {
+        private boolean enabled = true;
+        private Duration defaultTimeout = Duration.ofSeconds(10);
+        private Map<String, Duration> timeouts = new HashMap<>();
+        private final Retry retry = new Retry();
+        private final Breaker circuitBreaker = new Breaker();
+        private final Limiter limiter = new Limiter();
+    }
+
+    /**
+     * Retries of idempotent reads, with full-jitter exponential backoff.
+     */
+    @Getter
+    @Setter
+    public static class Retry {
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Circuit breaker over the outcomes of the last {@code windowSize} admin calls.
+     */
+    @Getter
+    @Setter
+    public static class Breaker {
+        private int failureRateThreshold = 50;
+        private int minimumCalls = 20;
+        private int windowSize = 50;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 5;
+    }
+
+    /**
+     * Adaptive limit of admin calls in flight.
+     * Calls slower than {@code latencyThreshold}, timeouts and server errors shrink the limit.
+     */
+    @Getter
+    @Setter
+    public static class Limiter {
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 20;
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+        private double backoffRatio = 0.9;
+        private Duration maxWait = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,182 @@
+package com.ibetar.keycloak.config;
+
+import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.entity.UserSummary;
+import com.ibetar.keycloak.jwt.JwtAuthConverter;
+import com.ibetar.keycloak.jwt.MappingJwtGrantedAuthoritiesConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.resource.*;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.*;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Native image hints for the parts of the service that Spring AOT cannot see.
+ * <p>
+ * The Keycloak admin client is a set of RESTEasy proxies over JAX-RS interfaces, read through
+ * reflection and backed by JDK dynamic proxies; RESTEasy itself finds its providers through
+ * {@code META-INF/services} files and its i18n bundles through reflection, and Jackson binds the
+ * Keycloak representations and the records read outside of controller signatures. The providers and
+ * bundles are discovered on the build classpath, the proxied interfaces and bound types are listed.
+ */
+@Slf4j
+public class KeyCloakRuntimeHints implements RuntimeHintsRegistrar {
+    private static final String SERVICES = "META-INF/services/";
+    private static final String[] SERVICE_TYPES = {
+            "jakarta.ws.rs.ext.Providers",
+            "jakarta.ws.rs.ext.RuntimeDelegate",
+            "jakarta.ws.rs.client.ClientBuilder",
+            "org.jboss.resteasy.spi.concurrent.ThreadContext",
+            "org.keycloak.admin.client.spi.ResteasyClientProvider"
+    };
+    private static final String[] I18N_PATTERNS = {
+            "classpath*:org/jboss/resteasy/**/*_$bundle.class",
+            "classpath*:org/jboss/resteasy/**/*_$logger.class"
+    };
+    /**
+     * Admin client interfaces reached from this service, each proxied together with the RESTEasy marker.
+     */
+    private static final Class<?>[] PROXIED_RESOURCES = {
+            TokenService.class,
+            RealmResource.class,
+            UsersResource.class,
+            UserResource.class,
+            RoleMappingResource.class,
+            RoleScopeResource.class,
+            RolesResource.class,
+            RoleResource.class
+    };
+    private static final String CLIENT_PROXY = "org.jboss.resteasy.client.jaxrs.internal.proxy.ResteasyClientProxy";
+    private static final Class<?>[] BOUND_TYPES = {
+            AccessTokenResponse.class,
+            UserRepresentation.class,
+            CredentialRepresentation.class,
+            RoleRepresentation.class,
+            MappingsRepresentation.class,
+            ClientMappingsRepresentation.class,
+            FederatedIdentityRepresentation.class,
+            UserConsentRepresentation.class,
+            EventRepresentation.class,
+            AdminEventRepresentation.class,
+            ErrorRepresentation.class,
+            UserDTO.class,
+            UserSummary.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        ClassLoader loader = classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader();
+        registerAdminClient(hints);
+        registerServices(hints, loader);
+        registerI18n(hints, loader);
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BOUND_TYPES);
+        registerConverters(hints);
+    }
+
+    private static void registerAdminClient(RuntimeHints hints) {
+        TypeReference clientProxy = TypeReference.of(CLIENT_PROXY);
+        for (Class<?> resource : PROXIED_RESOURCES) {
+            hints.proxies().registerJdkProxy(TypeReference.of(resource), clientProxy);
+            hints.reflection().registerType(resource, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        hints.reflection().registerType(TypeReference.of("org.keycloak.admin.client.JacksonProvider"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(TypeReference.of("org.keycloak.admin.client.spi.ResteasyClientClassicProvider"),
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.resources().registerPattern("keycloak-version.properties");
+    }
+
+    /**
+     * Registers the service files of RESTEasy and the Keycloak admin client, and the constructors of the
+     * implementations they name, since both are instantiated reflectively.
+     */
+    private static void registerServices(RuntimeHints hints, ClassLoader loader) {
+        for (String serviceType : SERVICE_TYPES) {
+            hints.resources().registerPattern(SERVICES + serviceType);
+            for (String implementation : readServiceFiles(loader, SERVICES + serviceType)) {
+                hints.reflection().registerType(TypeReference.of(implementation),
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+        }
+    }
+
+    /**
+     * Registers the generated jboss-logging message bundles and loggers of RESTEasy, which are looked up by
+     * name and read through their {@code INSTANCE} field or their logger constructor.
+     */
+    private static void registerI18n(RuntimeHints hints, ClassLoader loader) {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(loader);
+        for (String pattern : I18N_PATTERNS) {
+            try {
+                for (Resource resource : resolver.getResources(pattern)) {
+                    String className = toClassName(resource);
+                    if (className != null) {
+                        hints.reflection().registerType(TypeReference.of(className),
+                                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.PUBLIC_FIELDS);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not scan {} for native hints: {}", pattern, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The JWT converters are built from a package-private constructor and {@code @Value} fields.
+     */
+    private static void registerConverters(RuntimeHints hints) {
+        hints.reflection().registerType(MappingJwtGrantedAuthoritiesConverter.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.reflection().registerType(JwtAuthConverter.class,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.DECLARED_FIELDS);
+    }
+
+    private static Set<String> readServiceFiles(ClassLoader loader, String location) {
+        Set<String> implementations = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> files = loader.getResources(location);
+            while (files.hasMoreElements()) {
+                try (InputStream in = files.nextElement().openStream()) {
+                    for (String line : StreamUtils.copyToString(in, StandardCharsets.UTF_8).split("\\R")) {
+                        int comment = line.indexOf('#');
+                        String implementation = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                        if (!implementation.isEmpty()) {
+                            implementations.add(implementation);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not read {} for native hints: {}", location, e.getMessage());
+        }
+        return implementations;
+    }
+
+    private static String toClassName(Resource resource) throws IOException {
+        String url = resource.getURL().toString();
+        // Jar entries follow the last "!/", classes directories are matched on the package path
+        int entry = url.lastIndexOf("!/");
+        int start = entry >= 0 ? entry + 2 : url.indexOf("org/jboss/resteasy/");
+        if (start < 0 || !url.endsWith(".class")) {
+            return null;
+        }
+        return url.substring(start, url.length() - ".class".length()).replace('/', '.');
+    }
+}
@@ -1,31 +1,53 @@
 package com.ibetar.keycloak.config;
 
+import com.ibetar.keycloak.jwt.RevokedTokenDenylist;
+import com.ibetar.keycloak.service.LogoutPropagationService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+/**
+ * Propagates logouts to Keycloak.
+ * An OIDC user is logged out at Keycloak's end-session endpoint and a bearer token ends its Keycloak
+ * session through the admin API. The call is queued on the {@link LogoutPropagationService}, so the
+ * logout response does not wait for Keycloak. Until it has gone through, and for the access tokens
+ * Keycloak already issued, the token and its session are also revoked locally, since tokens are
+ * validated here without asking Keycloak.
+ */
 @Component
 public class KeycloakLogoutHandler implements LogoutHandler {
-    // TODO: Still for implementation
     private static final Logger logger = LoggerFactory.getLogger(KeycloakLogoutHandler.class);
-    private final RestTemplate restTemplate;
+    private final LogoutPropagationService propagationService;
+    private final RevokedTokenDenylist denylist;
 
-    public KeycloakLogoutHandler(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public KeycloakLogoutHandler(LogoutPropagationService propagationService, RevokedTokenDenylist denylist) {
+        this.propagationService = propagationService;
+        this.denylist = denylist;
     }
 
     @Override
     public void logout(HttpServletRequest request, HttpServletResponse response,
                        Authentication auth) {
-        logoutFromKeycloak((OidcUser) auth.getPrincipal());
+        if (auth instanceof JwtAuthenticationToken token) {
+            Jwt jwt = token.getToken();
+            denylist.revokeToken(jwt.getId(), jwt.getExpiresAt());
+            String sessionId = jwt.getClaimAsString("sid");
+            denylist.revokeSession(sessionId);
+            if (propagationService.endSession(sessionId, jwt.getSubject())) {
+                logger.debug("Queued the end of the Keycloak session of {}", jwt.getSubject());
+            }
+        } else if (auth != null && auth.getPrincipal() instanceof OidcUser user) {
+            denylist.revokeSession(user.getIdToken().getClaimAsString("sid"));
+            logoutFromKeycloak(user);
+        }
     }
 
     private void logoutFromKeycloak(OidcUser user) {
@@ -34,12 +56,8 @@ public class KeycloakLogoutHandler implements LogoutHandler {
                 .fromUriString(endSessionEndpoint)
                 .queryParam("id_token_hint", user.getIdToken().getTokenValue());
 
-        ResponseEntity<String> logoutResponse = restTemplate.getForEntity(
-                builder.toUriString(), String.class);
-        if (logoutResponse.getStatusCode().is2xxSuccessful()) {
-            logger.info("Successfully logged out from Keycloak");
-        } else {
-            logger.error("Could not propagate logout to Keycloak");
+        if (propagationService.submit(builder.build().toUri(), user.getSubject())) {
+            logger.debug("Queued logout of {} for Keycloak", user.getSubject());
         }
     }
 }
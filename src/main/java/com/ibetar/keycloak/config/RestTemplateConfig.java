@@ -1,5 +1,7 @@
 package com.ibetar.keycloak.config;
 
+import com.ibetar.keycloak.utils.PooledHttpClientFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -9,6 +11,7 @@ import org.springframework.web.client.RestTemplate;
  Configuration class for RestTemplate.
  The RestTemplateConfig class provides a bean definition for RestTemplate.
  It creates and configures an instance of RestTemplate that can be used for making REST ful API calls.
+ Outbound calls share one pooled HTTP client with per-route timeouts, see {@link HttpClientProperties}.
  This class is annotated with @Configuration to indicate that it is a configuration class.
  @since [current_date]
 
@@ -16,8 +19,15 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class RestTemplateConfig {
 
+    @Bean(destroyMethod = "close")
+    public PooledHttpClientFactory pooledHttpClientFactory(HttpClientProperties properties) {
+        return new PooledHttpClientFactory(properties);
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, PooledHttpClientFactory httpClientFactory) {
+        return builder
+                .requestFactory(httpClientFactory::requestFactory)
+                .build();
     }
-}
\ No newline at end of file
+}
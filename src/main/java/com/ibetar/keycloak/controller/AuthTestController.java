@@ -1,13 +1,22 @@
 package com.ibetar.keycloak.controller;
 
+import com.ibetar.keycloak.config.KeycloakLogoutHandler;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 @RequestMapping("api/v1/auth")
+@RequiredArgsConstructor
 public class AuthTestController {
+    private final KeycloakLogoutHandler logoutHandler;
 
     @GetMapping("admin")
     @PreAuthorize("hasRole('ADMIN')")
@@ -23,4 +32,13 @@ public class AuthTestController {
         return "Hello as Profile from Authentication Using Key Cloak";
     }
 
+    @PostMapping("logout")
+    public ResponseEntity<Void> logout(HttpServletRequest request,
+                                       HttpServletResponse response,
+                                       Authentication authentication) {
+        // The bearer token of this request is rejected from now on
+        logoutHandler.logout(request, response, authentication);
+        return ResponseEntity.noContent().build();
+    }
+
 }
@@ -1,60 +1,300 @@
 package com.ibetar.keycloak.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.ibetar.keycloak.cache.UserVersions;
+import com.ibetar.keycloak.entity.BulkRoleRequest;
+import com.ibetar.keycloak.entity.CreatedUser;
+import com.ibetar.keycloak.entity.UserCount;
+import com.ibetar.keycloak.entity.UserSearchCriteria;
 import com.ibetar.keycloak.entity.UserDTO;
-import com.ibetar.keycloak.service.KeyCloakService;
+import com.ibetar.keycloak.entity.UserPatchDTO;
+import com.ibetar.keycloak.service.AsyncKeyCloakDao;
+import com.ibetar.keycloak.service.KeyCloakDao;
+import com.ibetar.keycloak.utils.UserProjection;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @RestController
 @RequestMapping("api/v1/keycloak/admin/users")
 @PreAuthorize("hasRole('ADMIN')")
 @RequiredArgsConstructor
 public class KeyCloakController {
-    private final KeyCloakService service;
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private final KeyCloakDao service;
+    private final AsyncKeyCloakDao asyncService;
+    private final ObjectMapper objectMapper;
+    private final UserVersions versions;
+
     @GetMapping
-    public ResponseEntity<?> findAllUsers() {
-        return ResponseEntity.ok(service.findAllUsers());
+    public CompletableFuture<ResponseEntity<?>> findAllUsers(
+            @RequestParam(defaultValue = "0") int first,
+            @RequestParam(defaultValue = "100") int max,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+    {
+        UserProjection projection = UserProjection.of(view, fields);
+        // The tag is taken before the fetch, a change made meanwhile only causes one more full response
+        String etag = versions.listingTag("list|" + first + "|" + max + "|" + projection.key());
+        if (isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        return asyncService.findAllUsers(first, max)
+                .thenApply(users -> respond(ifNoneMatch, etag, !users.isEmpty(), projection.apply(users)));
+    }
+
+    @GetMapping("page")
+    public CompletableFuture<ResponseEntity<?>> findUsersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int max,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+    {
+        String etag = versions.listingTag("page|" + cursor + "|" + max);
+        if (isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        return asyncService.findUsersPage(cursor, max)
+                .thenApply(page -> respond(ifNoneMatch, etag, !page.users().isEmpty(), page));
+    }
+
+    @GetMapping(value = "stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(
+            @RequestParam(defaultValue = "500") int pageSize,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields)
+    {
+        UserProjection projection = UserProjection.of(view, fields);
+        ObjectWriter writer = projection == UserProjection.FULL
+                ? objectMapper.writerFor(UserRepresentation.class)
+                : objectMapper.writer();
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<List<UserRepresentation>> pages = service.streamUserPages(pageSize);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                Iterator<List<UserRepresentation>> iterator = pages.iterator();
+                while (iterator.hasNext()) {
+                    // One line per user, flushed per page so the client sees data as soon as it is fetched
+                    for (UserRepresentation user : iterator.next()) {
+                        writer.writeValue(generator, projection.apply(user));
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
     }
 
     @GetMapping("user/{username}")
-    public ResponseEntity<?> findByUsername(@PathVariable String username) {
-        return ResponseEntity.ok(service.findByUsername(username));
+    public CompletableFuture<ResponseEntity<?>> findByUsername(
+            @PathVariable String username,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+    {
+        UserProjection projection = UserProjection.of(view, fields);
+        String etag = versions.userTag(username, projection.key());
+        if (isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        return asyncService.findByUsername(username)
+                .thenApply(users -> respond(ifNoneMatch, etag, !users.isEmpty(), projection.apply(users)));
+    }
+
+    @GetMapping("search")
+    public CompletableFuture<ResponseEntity<?>> searchUsers(
+            @ModelAttribute UserSearchCriteria criteria,
+            @RequestParam(defaultValue = "0") int first,
+            @RequestParam(defaultValue = "100") int max,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+    {
+        UserProjection projection = UserProjection.of(view, fields);
+        String etag = versions.listingTag("search|" + criteria + "|" + first + "|" + max + "|" + projection.key());
+        if (isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        return asyncService.searchUsers(criteria, first, max, !projection.needsFullRepresentation())
+                .thenApply(users -> respond(ifNoneMatch, etag, !users.isEmpty(), projection.apply(users)));
+    }
+
+    @GetMapping("count")
+    public CompletableFuture<ResponseEntity<?>> countUsers(@ModelAttribute UserSearchCriteria criteria) {
+        return asyncService.countUsers(criteria).thenApply(count -> ResponseEntity.ok(new UserCount(count)));
     }
 
     @PostMapping("create")
-    public ResponseEntity<?> createUser(
+    public CompletableFuture<ResponseEntity<?>> createUser(
             @RequestBody UserDTO userDTO)
-            throws URISyntaxException
     {
-        String response = service.createUser(userDTO);
-        return ResponseEntity.created(new URI("keycloak/users/create")).body(response);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/keycloak/admin/users/user/{username}")
+                .buildAndExpand(userDTO.username())
+                .toUri();
+        return asyncService.createUser(userDTO)
+                .thenApply(userId -> ResponseEntity.created(location).body(new CreatedUser(userId, userDTO.username())));
+    }
+
+    @PostMapping(value = "create/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> createUsers(
+            @RequestBody List<UserDTO> users,
+            @RequestParam(defaultValue = "0") int concurrency)
+    {
+        return asyncService.createUsers(users.stream(), concurrency).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "create/bulk", consumes = APPLICATION_NDJSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> createUsersStream(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "0") int concurrency)
+            throws IOException
+    {
+        // The body is read by the bulk operation and closed once it completes
+        MappingIterator<UserDTO> iterator = objectMapper.readerFor(UserDTO.class)
+                .readValues(request.getInputStream());
+        Stream<UserDTO> users = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+        return asyncService.createUsers(users, concurrency)
+                .whenComplete((result, e) -> closeQuietly(iterator))
+                .thenApply(ResponseEntity::ok);
     }
 
     @PutMapping("update/{userId}")
-    public ResponseEntity<?> updateUser(
+    public CompletableFuture<ResponseEntity<?>> updateUser(
             @PathVariable String userId,
             @RequestBody UserDTO userDTO
     )
     {
-        service.updateUser(userId, userDTO);
-        String response = String.format(
-                "User %s %s, with username: %s updated successfully!",
-                userDTO.firstName(),
-                userDTO.lastName(),
-                userDTO.username()
-        );
-        return ResponseEntity.ok(response);
+        return asyncService.updateUser(userId, userDTO).thenApply(ignored -> {
+            String response = String.format(
+                    "User %s %s, with username: %s updated successfully!",
+                    userDTO.firstName(),
+                    userDTO.lastName(),
+                    userDTO.username()
+            );
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    @PatchMapping("update/{userId}")
+    public CompletableFuture<ResponseEntity<?>> patchUser(
+            @PathVariable String userId,
+            @RequestBody UserPatchDTO patch
+    )
+    {
+        return asyncService.patchUser(userId, patch).thenApply(ResponseEntity::ok);
     }
 
     @DeleteMapping("delete/{userId}")
-    public ResponseEntity<?> deleteUser(@PathVariable String userId) {
-        service.deleteUser(userId);
-        return ResponseEntity.noContent().build();
+    public CompletableFuture<ResponseEntity<?>> deleteUser(@PathVariable String userId) {
+        return asyncService.deleteUser(userId).thenApply(ignored -> ResponseEntity.noContent().build());
+    }
+
+    @PostMapping("delete/bulk")
+    public CompletableFuture<ResponseEntity<?>> deleteUsers(
+            @RequestBody List<String> userIds,
+            @RequestParam(defaultValue = "0") int concurrency)
+    {
+        return asyncService.deleteUsers(userIds, concurrency).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("roles/add/bulk")
+    public CompletableFuture<ResponseEntity<?>> addRealmRoles(
+            @RequestBody BulkRoleRequest request,
+            @RequestParam(defaultValue = "0") int concurrency)
+    {
+        return asyncService.addRealmRoles(request.userIds(), request.roles(), concurrency)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("roles/remove/bulk")
+    public CompletableFuture<ResponseEntity<?>> removeRealmRoles(
+            @RequestBody BulkRoleRequest request,
+            @RequestParam(defaultValue = "0") int concurrency)
+    {
+        return asyncService.removeRealmRoles(request.userIds(), request.roles(), concurrency)
+                .thenApply(ResponseEntity::ok);
     }
 
-}
\ No newline at end of file
+    private ResponseEntity.BodyBuilder conditional(String etag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (versions.isEnabled()) {
+            builder.eTag(etag).cacheControl(CacheControl.noCache());
+        }
+        return builder;
+    }
+
+    /**
+     * Answers with the fetched body, or with 304 if the request asked for {@code If-None-Match: *}
+     * and a current representation exists.
+     */
+    private ResponseEntity<?> respond(String ifNoneMatch, String etag, boolean exists, Object body) {
+        if (exists && versions.isEnabled() && ifNoneMatch != null && ifNoneMatch.trim().equals("*")) {
+            return notModified(etag);
+        }
+        return conditional(etag).body(body);
+    }
+
+    /**
+     * Compares the request's entity tags with the current one before anything is fetched.
+     * {@code *} only matches an existing representation, so it is left to {@link #respond}.
+     */
+    private boolean isNotModified(String ifNoneMatch, String etag) {
+        if (!versions.isEnabled() || ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            // Weak comparison, as required for If-None-Match
+            if (stripWeak(candidate.trim()).equals(stripWeak(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .build();
+    }
+
+    private static void closeQuietly(MappingIterator<?> iterator) {
+        try {
+            iterator.close();
+        } catch (IOException ignored) {
+            // The response does not depend on it
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ibetar.keycloak.controller;
+
+import com.ibetar.keycloak.entity.ImportFormat;
+import com.ibetar.keycloak.entity.ImportRequest;
+import com.ibetar.keycloak.entity.ImportStatus;
+import com.ibetar.keycloak.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+
+@RestController
+@RequestMapping("api/v1/keycloak/admin/imports")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class UserImportController {
+    private final UserImportService service;
+
+    @GetMapping
+    public ResponseEntity<?> findAllImports() {
+        return ResponseEntity.ok(service.findAllImports());
+    }
+
+    @GetMapping("{id}")
+    public ResponseEntity<?> findImport(@PathVariable String id) {
+        return ResponseEntity.ok(service.findImport(id));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> startImport(@RequestBody ImportRequest request) {
+        ImportStatus status = service.startImport(request);
+        return ResponseEntity.accepted().location(location(status)).body(status);
+    }
+
+    @PostMapping("upload/{fileName}")
+    public ResponseEntity<?> uploadImport(
+            @PathVariable String fileName,
+            @RequestParam ImportFormat format,
+            @RequestParam(defaultValue = "0") int concurrency,
+            HttpServletRequest request)
+            throws IOException
+    {
+        ImportStatus status = service.uploadAndImport(fileName, format, concurrency, request.getInputStream());
+        return ResponseEntity.accepted().location(location(status)).body(status);
+    }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<?> cancelImport(@PathVariable String id) {
+        return ResponseEntity.ok(service.cancelImport(id));
+    }
+
+    private static URI location(ImportStatus status) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/keycloak/admin/imports/{id}")
+                .buildAndExpand(status.id())
+                .toUri();
+    }
+
+}
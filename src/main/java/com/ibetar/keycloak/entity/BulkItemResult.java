@@ -0,0 +1,16 @@
+package com.ibetar.keycloak.entity;
+
+/**
+ * Outcome of a single item of a bulk operation.
+ *
+ * @param key     The key identifying the item in the request, e.g. the username.
+ * @param status  The outcome of the item.
+ * @param userId  The id of the affected user, when known.
+ * @param message A human-readable description of the outcome.
+ */
+public record BulkItemResult(
+        String key,
+        BulkItemStatus status,
+        String userId,
+        String message
+) {}
@@ -0,0 +1,16 @@
+package com.ibetar.keycloak.entity;
+
+public enum BulkItemStatus {
+    SUCCESS,
+    CONFLICT,
+    NOT_FOUND,
+    /**
+     * Keycloak was unavailable or timed out, the item may succeed when retried.
+     */
+    UNAVAILABLE,
+    /**
+     * The user was created but its roles could not be assigned, nor could the user be removed again.
+     */
+    PARTIAL,
+    FAILED
+}
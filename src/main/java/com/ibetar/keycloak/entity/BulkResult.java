@@ -0,0 +1,28 @@
+package com.ibetar.keycloak.entity;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk operation with the per-item results in request order.
+ * Items whose user does not exist, or that Keycloak was unavailable for, are counted as failed.
+ */
+public record BulkResult(
+        int succeeded,
+        int conflicts,
+        int failed,
+        List<BulkItemResult> items
+) {
+    public static BulkResult of(List<BulkItemResult> items) {
+        int succeeded = 0;
+        int conflicts = 0;
+        int failed = 0;
+        for (BulkItemResult item : items) {
+            switch (item.status()) {
+                case SUCCESS -> succeeded++;
+                case CONFLICT -> conflicts++;
+                default -> failed++;
+            }
+        }
+        return new BulkResult(succeeded, conflicts, failed, items);
+    }
+}
@@ -0,0 +1,14 @@
+package com.ibetar.keycloak.entity;
+
+import java.util.List;
+
+/**
+ * Realm roles to assign to or unassign from a set of users.
+ *
+ * @param userIds The ids of the users.
+ * @param roles   The names of the realm roles.
+ */
+public record BulkRoleRequest(
+        List<String> userIds,
+        List<String> roles
+) {}
@@ -0,0 +1,12 @@
+package com.ibetar.keycloak.entity;
+
+/**
+ * The user created by a creation request.
+ *
+ * @param id       The id Keycloak assigned to the user.
+ * @param username The username of the user.
+ */
+public record CreatedUser(
+        String id,
+        String username
+) {}
@@ -0,0 +1,6 @@
+package com.ibetar.keycloak.entity;
+
+public enum ImportFormat {
+    CSV,
+    NDJSON
+}
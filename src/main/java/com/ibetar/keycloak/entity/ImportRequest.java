@@ -0,0 +1,14 @@
+package com.ibetar.keycloak.entity;
+
+/**
+ * Request to import users from a file located in the import directory.
+ *
+ * @param file        The name of the file, relative to {@code keycloak.imports.directory}.
+ * @param format      The format of the file.
+ * @param concurrency The number of users created in parallel, zero for the default.
+ */
+public record ImportRequest(
+        String file,
+        ImportFormat format,
+        int concurrency
+) {}
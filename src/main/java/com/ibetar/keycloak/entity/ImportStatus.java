@@ -0,0 +1,25 @@
+package com.ibetar.keycloak.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress report of a user import job.
+ */
+public record ImportStatus(
+        String id,
+        String file,
+        String state,
+        long processed,
+        long succeeded,
+        long conflicts,
+        long failed,
+        long bytesRead,
+        long totalBytes,
+        double recordsPerSecond,
+        Long etaSeconds,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy hh:mm:ss")
+        LocalDateTime startedAt,
+        String error
+) {}
@@ -0,0 +1,10 @@
+package com.ibetar.keycloak.entity;
+
+/**
+ * The number of users matching a search.
+ *
+ * @param count The number of matching users.
+ */
+public record UserCount(
+        int count
+) {}
@@ -0,0 +1,14 @@
+package com.ibetar.keycloak.entity;
+
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+
+/**
+ * A page of users together with the cursor to fetch the following page.
+ * The cursor is null once the last page has been reached.
+ */
+public record UserPage(
+        List<UserRepresentation> users,
+        String nextCursor
+) {}
@@ -0,0 +1,24 @@
+package com.ibetar.keycloak.entity;
+
+import java.util.List;
+
+/**
+ * Partial update of a user. Null fields are left unchanged.
+ *
+ * @param email       The new email.
+ * @param firstName   The new first name.
+ * @param lastName    The new last name.
+ * @param enabled     Whether the user is enabled.
+ * @param password    The new password, sets a new credential when present.
+ * @param addRoles    Realm roles to assign.
+ * @param removeRoles Realm roles to unassign.
+ */
+public record UserPatchDTO(
+        String email,
+        String firstName,
+        String lastName,
+        Boolean enabled,
+        String password,
+        List<String> addRoles,
+        List<String> removeRoles
+) {}
@@ -0,0 +1,20 @@
+package com.ibetar.keycloak.entity;
+
+import java.util.List;
+
+/**
+ * What a partial update actually changed.
+ *
+ * @param userId        The id of the updated user.
+ * @param updatedFields The profile fields that differed and were sent to Keycloak.
+ * @param passwordReset Whether a new password was set.
+ * @param addedRoles    The realm roles assigned.
+ * @param removedRoles  The realm roles unassigned.
+ */
+public record UserPatchResult(
+        String userId,
+        List<String> updatedFields,
+        boolean passwordReset,
+        List<String> addedRoles,
+        List<String> removedRoles
+) {}
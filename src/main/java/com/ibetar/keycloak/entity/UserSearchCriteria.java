@@ -0,0 +1,32 @@
+package com.ibetar.keycloak.entity;
+
+/**
+ * Criteria of a user search, pushed down to Keycloak. Null criteria are ignored.
+ * Text criteria match any part of the field, e.g. an email of "@example.com" finds a whole domain.
+ *
+ * @param username      Part of the username.
+ * @param firstName     Part of the first name.
+ * @param lastName      Part of the last name.
+ * @param email         Part of the email.
+ * @param emailVerified Whether the email is verified.
+ * @param enabled       Whether the user is enabled.
+ */
+public record UserSearchCriteria(
+        String username,
+        String firstName,
+        String lastName,
+        String email,
+        Boolean emailVerified,
+        Boolean enabled
+) {
+    public UserSearchCriteria {
+        username = blankToNull(username);
+        firstName = blankToNull(firstName);
+        lastName = blankToNull(lastName);
+        email = blankToNull(email);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,32 @@
+package com.ibetar.keycloak.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.keycloak.representations.idm.UserRepresentation;
+
+/**
+ * Compact view of a user, returned instead of the full representation with {@code view=compact}.
+ * Leaves out attributes, access maps, federation links and credentials.
+ *
+ * @param id               The id of the user.
+ * @param username         The username of the user.
+ * @param email            The email of the user.
+ * @param firstName        The first name of the user.
+ * @param lastName         The last name of the user.
+ * @param enabled          Whether the user can log in.
+ * @param createdTimestamp The creation time in epoch milliseconds.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserSummary(
+        String id,
+        String username,
+        String email,
+        String firstName,
+        String lastName,
+        Boolean enabled,
+        Long createdTimestamp
+) {
+    public static UserSummary of(UserRepresentation user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.isEnabled(), user.getCreatedTimestamp());
+    }
+}
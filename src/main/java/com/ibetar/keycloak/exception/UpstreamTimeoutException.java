@@ -0,0 +1,9 @@
+package com.ibetar.keycloak.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code= HttpStatus.GATEWAY_TIMEOUT)
+public class UpstreamTimeoutException extends RuntimeException {
+    public UpstreamTimeoutException(String message, Throwable cause) { super(message, cause); }
+}
@@ -1,5 +1,7 @@
 package com.ibetar.keycloak.jwt;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,7 +13,6 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimNames;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
-import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -21,40 +22,61 @@ import java.util.stream.Stream;
 /**
  * Converter class for converting JWT tokens to AbstractAuthenticationToken objects.
  * Extracts authorities and principal information from the JWT token.
+ * Conversions are timed in {@code jwt.auth.conversion}.
  */
 @Component
 public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationToken> {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthConverter.class);
-    private final JwtGrantedAuthoritiesConverter converter = new JwtGrantedAuthoritiesConverter();
     private final MappingJwtGrantedAuthoritiesConverter mapping;
+    private final JwtAuthenticationCache cache;
+    private final Timer conversionTimer;
     @Value("${jwt.auth.converter.principal-attr}")
     private String keyCloakPrincipalAttr;
     @Value("${jwt.auth.converter.resource-id}")
     private String resourceId;
 
-    public JwtAuthConverter(MappingJwtGrantedAuthoritiesConverter mapping) {
+    public JwtAuthConverter(MappingJwtGrantedAuthoritiesConverter mapping,
+                            JwtAuthenticationCache cache,
+                            MeterRegistry meterRegistry) {
         this.mapping = mapping;
+        this.cache = cache;
+        this.conversionTimer = Timer.builder("jwt.auth.conversion")
+                .description("Conversion of verified JWTs into authentication tokens")
+                .register(meterRegistry);
     }
 
     /**
      * Converts a JWT token to an AbstractAuthenticationToken.
+     * The authorities and principal name are cached per token until it expires.
      *
      * @param jwtSource The JWT token to convert.
      * @return An AbstractAuthenticationToken representing the JWT token.
      */
     @Override
     public AbstractAuthenticationToken convert(@NonNull Jwt jwtSource) {
-        logger.info("Converting jwt source");
+        return conversionTimer.record(() -> {
+            JwtAuthenticationCache.Entry entry = cache.get(jwtSource, this::computeAuthentication);
+            return new JwtAuthenticationToken(
+                    jwtSource,
+                    entry.authorities(),
+                    entry.principalName()
+            );
+        });
+    }
+
+    /**
+     * Computes the authorities and principal name of a JWT token.
+     *
+     * @param jwtSource The JWT token to convert.
+     * @return A cache entry holding the authorities and principal name.
+     */
+    private JwtAuthenticationCache.Entry computeAuthentication(Jwt jwtSource) {
+        logger.debug("Converting jwt source");
         Collection<GrantedAuthority> authorities = Stream.concat(
-                converter.convert(jwtSource).stream(),
+                mapping.convert(jwtSource).stream(),
                 extractResourceRoles(jwtSource).stream())
-                .collect(Collectors.toSet());
-
-        return new JwtAuthenticationToken(
-                jwtSource,
-                authorities,
-                getPrincipalClaimName(jwtSource)
-        );
+                .collect(Collectors.toUnmodifiableSet());
+        return new JwtAuthenticationCache.Entry(authorities, getPrincipalClaimName(jwtSource), 0);
     }
 
     /**
@@ -64,7 +86,7 @@ public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationTo
      * @return The name of the principal claim.
      */
     private String getPrincipalClaimName(Jwt jwtSource) {
-        logger.info("Getting Principal ClaimName");
+        logger.debug("Getting Principal ClaimName");
         String claimName = JwtClaimNames.SUB;
         if (keyCloakPrincipalAttr != null) {
             claimName = keyCloakPrincipalAttr;
@@ -79,7 +101,7 @@ public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationTo
      * @return Collection of GrantedAuthority objects representing the resource roles.
      */
     private Collection<? extends GrantedAuthority> extractResourceRoles(Jwt jwtSource) {
-        logger.info("Extracting Resource Roles...");
+        logger.debug("Extracting Resource Roles...");
         Map<String, Object> resourceAccess = jwtSource.getClaim("resource_access");
         if (resourceAccess == null || !resourceAccess.containsKey(resourceId)) {
             return Set.of();
@@ -0,0 +1,147 @@
+package com.ibetar.keycloak.jwt;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the authorities and principal name computed for a JWT.
+ * Entries are keyed by the token id ({@code jti}), or by the token value when the token has no id,
+ * and expire together with the token. When the cache is full, one thread purges the expired entries
+ * and drops arbitrary ones until a tenth of the capacity is free, so the scan is paid once per batch of
+ * misses rather than on every miss. Misses arriving while it runs are not cached.
+ */
+@Component
+public class JwtAuthenticationCache implements MeterBinder {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final boolean enabled;
+    private final int maxSize;
+    private final int trimmedSize;
+
+    public JwtAuthenticationCache(
+            @Value("${jwt.auth.converter.cache.enabled:true}") boolean enabled,
+            @Value("${jwt.auth.converter.cache.max-size:10000}") int maxSize) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.trimmedSize = maxSize - Math.max(1, maxSize / 10);
+    }
+
+    /**
+     * Returns the cached conversion of the token, computing and caching it on a miss.
+     *
+     * @param jwt     The verified JWT.
+     * @param compute Computes the conversion on a miss.
+     * @return The authorities and principal name of the token.
+     */
+    public Entry get(Jwt jwt, Function<Jwt, Entry> compute) {
+        if (!enabled) {
+            return compute.apply(jwt);
+        }
+        String key = jwt.getId() != null ? jwt.getId() : jwt.getTokenValue();
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAtMillis() > now) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        Entry computed = compute.apply(jwt);
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt != null && expiresAt.toEpochMilli() > now) {
+            Entry cached = new Entry(computed.authorities(), computed.principalName(), expiresAt.toEpochMilli());
+            if (entries.size() >= maxSize && !makeRoom(now)) {
+                return cached;
+            }
+            entries.put(key, cached);
+            return cached;
+        }
+        return computed;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, JwtAuthenticationCache::getHitCount)
+                .tags("cache", "jwt-authentication", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, JwtAuthenticationCache::getMissCount)
+                .tags("cache", "jwt-authentication", "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", this, JwtAuthenticationCache::size)
+                .tag("cache", "jwt-authentication")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, JwtAuthenticationCache::getEvictionCount)
+                .tag("cache", "jwt-authentication")
+                .register(registry);
+    }
+
+    /**
+     * Trims the cache down to {@code trimmedSize} entries, expired entries first.
+     *
+     * @return Whether room was made, false when another thread is already trimming.
+     */
+    private boolean makeRoom(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            int before = entries.size();
+            entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+            Iterator<String> keys = entries.keySet().iterator();
+            while (entries.size() > trimmedSize && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+            evictions.add(Math.max(0, before - entries.size()));
+            return true;
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * The conversion result of a token.
+     *
+     * @param authorities     The granted authorities.
+     * @param principalName   The principal name.
+     * @param expiresAtMillis The expiry of the token, in epoch milliseconds.
+     */
+    public record Entry(Collection<GrantedAuthority> authorities, String principalName, long expiresAtMillis) {}
+}
@@ -1,7 +1,5 @@
 package com.ibetar.keycloak.jwt;
 
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.lang.NonNull;
@@ -11,23 +9,103 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+
+/**
+ * Converts the scope claim of a JWT into granted authorities, renaming scopes through a mapping.
+ * <p>
+ * In precompiled mode (the default) one immutable authority is interned per scope, the scope claim
+ * is tokenized without regex or streams, and the resulting immutable set is shared by every token
+ * carrying the same scope string, so steady-state conversion is a map lookup.
+ */
 @Service
 public class MappingJwtGrantedAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
-    private static final Collection<String> WELL_KNOWN_AUTHORITIES_CLAIM_NAMES = Arrays.asList("scope", "scp");
+    private static final String[] WELL_KNOWN_AUTHORITIES_CLAIM_NAMES = {"scope", "scp"};
+    private static final int MAX_CACHED_ENTRIES = 4096;
     private final Map<String,String> scopes;
+    private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+    private final Map<String, Set<GrantedAuthority>> combinations = new ConcurrentHashMap<>();
     @Setter
     private String authoritiesClaimName = null;
-    @Setter
     private String authorityPrefix = "SCOPE_";
+    @Setter
+    private boolean precompiled = true;
 
     MappingJwtGrantedAuthoritiesConverter(Map<String,String> scopes) {
         this.scopes = scopes == null ? Collections.emptyMap(): scopes;
+        precompile();
+    }
+
+    /**
+     * Sets the prefix of the authorities and recompiles the interned authorities.
+     *
+     * @param authorityPrefix The authority prefix, e.g. "SCOPE_".
+     */
+    public void setAuthorityPrefix(String authorityPrefix) {
+        this.authorityPrefix = authorityPrefix;
+        precompile();
     }
 
     @Override
     public Collection<GrantedAuthority> convert(@NonNull Jwt jwt) {
+        if ( !precompiled ) {
+            return convertUncompiled(jwt);
+        }
+
+        String scopeClaim = resolveClaimName(jwt);
+        Object v = scopeClaim == null ? null : jwt.getClaim(scopeClaim);
+        if ( v instanceof String scopeString ) {
+            Set<GrantedAuthority> cached = combinations.get(scopeString);
+            if ( cached != null ) {
+                return cached;
+            }
+            Set<GrantedAuthority> computed = toAuthorities(tokenize(scopeString));
+            if ( combinations.size() < MAX_CACHED_ENTRIES ) {
+                combinations.putIfAbsent(scopeString, computed);
+            }
+            return computed;
+        }
+        else if ( v instanceof Collection<?> collection ) {
+            List<String> tokenScopes = new ArrayList<>(collection.size());
+            for (Object scope : collection) {
+                tokenScopes.add(scope.toString());
+            }
+            return toAuthorities(tokenScopes);
+        }
+        return Collections.emptySet();
+    }
+
+    protected Collection<String> parseScopesClaim(Jwt jwt) {
+
+        String scopeClaim = resolveClaimName(jwt);
+        if ( scopeClaim == null ) {
+            return Collections.emptyList();
+        }
+
+        Object v = jwt.getClaim(scopeClaim);
+        if ( v == null ) {
+            return Collections.emptyList();
+        }
+
+        if ( v instanceof String) {
+            return tokenize(v.toString());
+        }
+        else if ( v instanceof Collection ) {
+            Collection<?> collection = (Collection<?>) v;
+            Set<String> tokenScopes = new HashSet<>(collection.size() * 2);
+            for (Object scope : collection) {
+                tokenScopes.add(scope.toString());
+            }
+            return tokenScopes;
+        }
+        return Collections.emptyList();
+    }
 
+    /**
+     * The original stream-based conversion, kept for comparison with the precompiled mode.
+     */
+    private Collection<GrantedAuthority> convertUncompiled(Jwt jwt) {
         Collection<String> tokenScopes = parseScopesClaim(jwt);
         if ( tokenScopes.isEmpty()) {
             return Collections.emptyList();
@@ -40,37 +118,72 @@ public class MappingJwtGrantedAuthoritiesConverter implements Converter<Jwt, Col
                 .collect(Collectors.toCollection(HashSet::new));
     }
 
-    protected Collection<String> parseScopesClaim(Jwt jwt) {
-
-        String scopeClaim;
-
-        if ( this.authoritiesClaimName == null ) {
-            scopeClaim = WELL_KNOWN_AUTHORITIES_CLAIM_NAMES.stream()
-                    .filter(jwt::hasClaim)
-                    .findFirst()
-                    .orElse(null);
-
-            if ( scopeClaim == null ) {
-                return Collections.emptyList();
+    private String resolveClaimName(Jwt jwt) {
+        if ( this.authoritiesClaimName != null ) {
+            return this.authoritiesClaimName;
+        }
+        for (String claimName : WELL_KNOWN_AUTHORITIES_CLAIM_NAMES) {
+            if ( jwt.hasClaim(claimName) ) {
+                return claimName;
             }
         }
-        else {
-            scopeClaim = this.authoritiesClaimName;
+        return null;
+    }
+
+    private Set<GrantedAuthority> toAuthorities(List<String> tokenScopes) {
+        if ( tokenScopes.isEmpty() ) {
+            return Collections.emptySet();
+        }
+        GrantedAuthority[] granted = new GrantedAuthority[tokenScopes.size()];
+        int count = 0;
+        for (String scope : tokenScopes) {
+            GrantedAuthority authority = authorityFor(scope);
+            boolean duplicate = false;
+            for (int i = 0; i < count && !duplicate; i++) {
+                duplicate = granted[i].equals(authority);
+            }
+            if ( !duplicate ) {
+                granted[count++] = authority;
+            }
         }
+        return Set.of(Arrays.copyOf(granted, count));
+    }
 
-        Object v = jwt.getClaim(scopeClaim);
-        if ( v == null ) {
-            return Collections.emptyList();
+    private GrantedAuthority authorityFor(String scope) {
+        GrantedAuthority authority = authorities.get(scope);
+        if ( authority != null ) {
+            return authority;
         }
+        authority = new SimpleGrantedAuthority(this.authorityPrefix + scopes.getOrDefault(scope, scope));
+        if ( authorities.size() < MAX_CACHED_ENTRIES ) {
+            GrantedAuthority existing = authorities.putIfAbsent(scope, authority);
+            return existing != null ? existing : authority;
+        }
+        return authority;
+    }
 
-        if ( v instanceof String) {
-            return Arrays.asList(v.toString().split(" "));
+    private static List<String> tokenize(String scopeString) {
+        List<String> tokens = new ArrayList<>();
+        int length = scopeString.length();
+        int start = 0;
+        while ( start < length ) {
+            int end = scopeString.indexOf(' ', start);
+            if ( end < 0 ) {
+                end = length;
+            }
+            if ( end > start ) {
+                tokens.add(scopeString.substring(start, end));
+            }
+            start = end + 1;
         }
-        else if ( v instanceof Collection ) {
-            return ((Collection<?>)v).stream()
-                    .map(Object::toString)
-                    .collect(Collectors.toCollection(HashSet::new));
+        return tokens;
+    }
+
+    private void precompile() {
+        authorities.clear();
+        combinations.clear();
+        for (Map.Entry<String, String> mapping : scopes.entrySet()) {
+            authorities.put(mapping.getKey(), new SimpleGrantedAuthority(this.authorityPrefix + mapping.getValue()));
         }
-        return Collections.emptyList();
     }
 }
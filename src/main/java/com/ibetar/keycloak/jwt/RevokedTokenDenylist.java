@@ -0,0 +1,218 @@
+package com.ibetar.keycloak.jwt;
+
+import com.ibetar.keycloak.utils.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local denylist of revoked tokens, checked for every JWT as a token validator.
+ * Tokens are revoked by id ({@code jti}) until they expire, by session ({@code sid}) and by subject,
+ * the latter two for {@code jwt.denylist.max-token-lifetime}, since the expiry of the session's tokens
+ * is unknown. A subject revocation only rejects tokens issued before it.
+ * <p>
+ * Every revocation is added to a Bloom filter in front of the exact entries, so checking a token
+ * that was never revoked costs a few hash probes per claim and allocates nothing. Expired entries
+ * are purged every {@code jwt.denylist.purge-interval} and the filter is rebuilt from the remaining ones.
+ */
+@Slf4j
+@Component
+public class RevokedTokenDenylist implements OAuth2TokenValidator<Jwt>, MeterBinder {
+    private static final long TOKEN_SEED = 0x5A17L;
+    private static final long SESSION_SEED = 0x5E55L;
+    private static final long SUBJECT_SEED = 0x5B1EL;
+    private static final OAuth2Error REVOKED = new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN,
+            "The token has been revoked", null);
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final long maxTokenLifetimeMillis;
+    private final Map<String, Revocation> revocations = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService purger;
+    private final LongAdder clear = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile BloomFilter filter;
+
+    public RevokedTokenDenylist(
+            @Value("${jwt.denylist.expected-entries:100000}") int expectedEntries,
+            @Value("${jwt.denylist.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.denylist.max-token-lifetime:1h}") Duration maxTokenLifetime,
+            @Value("${jwt.denylist.purge-interval:1m}") Duration purgeInterval) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxTokenLifetimeMillis = maxTokenLifetime.toMillis();
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        long interval = purgeInterval.toMillis();
+        if (interval > 0) {
+            purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jwt-denylist-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            purger.scheduleWithFixedDelay(this::purge, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            purger = null;
+        }
+    }
+
+    /**
+     * Revokes a single token until it expires.
+     *
+     * @param tokenId   The id ({@code jti}) of the token.
+     * @param expiresAt The expiry of the token, null for the maximum token lifetime.
+     */
+    public void revokeToken(String tokenId, Instant expiresAt) {
+        long now = System.currentTimeMillis();
+        long until = expiresAt != null ? expiresAt.toEpochMilli() : now + maxTokenLifetimeMillis;
+        revoke("jti:", tokenId, TOKEN_SEED, new Revocation(now, until));
+    }
+
+    /**
+     * Revokes every token of a session.
+     *
+     * @param sessionId The session id ({@code sid}) of the tokens.
+     */
+    public void revokeSession(String sessionId) {
+        long now = System.currentTimeMillis();
+        revoke("sid:", sessionId, SESSION_SEED, new Revocation(now, now + maxTokenLifetimeMillis));
+    }
+
+    /**
+     * Revokes every token issued to a subject so far.
+     *
+     * @param subject The subject ({@code sub}) of the tokens, the Keycloak user id.
+     */
+    public void revokeSubject(String subject) {
+        long now = System.currentTimeMillis();
+        revoke("sub:", subject, SUBJECT_SEED, new Revocation(now, now + maxTokenLifetimeMillis));
+    }
+
+    /**
+     * Tells whether a token has been revoked by id, session or subject.
+     *
+     * @param jwt The token.
+     * @return true if the token must be rejected.
+     */
+    public boolean isRevoked(Jwt jwt) {
+        Map<String, Object> claims = jwt.getClaims();
+        Object tokenId = claims.get(JwtClaimNames.JTI);
+        Object sessionId = claims.get("sid");
+        Object subject = claims.get(JwtClaimNames.SUB);
+        boolean candidate = tokenId instanceof String id && filter.mightContain(id, TOKEN_SEED)
+                || sessionId instanceof String sid && filter.mightContain(sid, SESSION_SEED)
+                || subject instanceof String sub && filter.mightContain(sub, SUBJECT_SEED);
+        if (!candidate) {
+            clear.increment();
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        boolean revoked = tokenId instanceof String id && isActive(revocations.get("jti:" + id), now)
+                || sessionId instanceof String sid && isActive(revocations.get("sid:" + sid), now)
+                || subject instanceof String sub && issuedBefore(jwt, revocations.get("sub:" + sub), now);
+        (revoked ? rejected : falsePositives).increment();
+        return revoked;
+    }
+
+    @Override
+    public OAuth2TokenValidatorResult validate(Jwt jwt) {
+        return isRevoked(jwt) ? OAuth2TokenValidatorResult.failure(REVOKED) : OAuth2TokenValidatorResult.success();
+    }
+
+    /**
+     * Drops the expired revocations and rebuilds the Bloom filter from the remaining ones.
+     */
+    public synchronized void purge() {
+        long now = System.currentTimeMillis();
+        int before = revocations.size();
+        revocations.values().removeIf(revocation -> revocation.expiresAtMillis() <= now);
+        if (revocations.size() == before) {
+            return;
+        }
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revocations.size() * 2), falsePositiveRate);
+        revocations.keySet().forEach(key -> rebuilt.put(key.substring(4), seedOf(key)));
+        filter = rebuilt;
+        log.debug("Purged {} expired token revocations", before - revocations.size());
+    }
+
+    public int size() {
+        return revocations.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.denylist.size", this, RevokedTokenDenylist::size)
+                .description("Active token revocations")
+                .register(registry);
+        checkCounter(registry, "clear", clear);
+        checkCounter(registry, "false_positive", falsePositives);
+        checkCounter(registry, "revoked", rejected);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+    }
+
+    private synchronized void revoke(String prefix, String key, long seed, Revocation revocation) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        // Entries are never shortened, a later revocation of the same key only extends them
+        revocations.merge(prefix + key, revocation, (current, added) -> new Revocation(
+                Math.max(current.revokedAtMillis(), added.revokedAtMillis()),
+                Math.max(current.expiresAtMillis(), added.expiresAtMillis())));
+        filter.put(key, seed);
+    }
+
+    private static boolean isActive(Revocation revocation, long now) {
+        return revocation != null && revocation.expiresAtMillis() > now;
+    }
+
+    private static boolean issuedBefore(Jwt jwt, Revocation revocation, long now) {
+        if (!isActive(revocation, now)) {
+            return false;
+        }
+        Instant issuedAt = jwt.getIssuedAt();
+        // iat has a precision of seconds, a token issued in the second of the revocation is rejected too
+        return issuedAt == null || issuedAt.getEpochSecond() <= revocation.revokedAtMillis() / 1000;
+    }
+
+    private static long seedOf(String key) {
+        return switch (key.substring(0, 4)) {
+            case "jti:" -> TOKEN_SEED;
+            case "sid:" -> SESSION_SEED;
+            default -> SUBJECT_SEED;
+        };
+    }
+
+    private void checkCounter(MeterRegistry registry, String result, LongAdder counter) {
+        FunctionCounter.builder("jwt.denylist.checks", counter, LongAdder::sum)
+                .description("Denylist checks of incoming tokens by result")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Revocation(long revokedAtMillis, long expiresAtMillis) {}
+}
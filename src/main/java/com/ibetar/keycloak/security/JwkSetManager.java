@@ -0,0 +1,135 @@
+package com.ibetar.keycloak.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of the realm's JSON Web Key set used to verify token signatures.
+ * <p>
+ * The key set is fetched in the background as soon as the application starts and refreshed every
+ * {@code jwt.jwk.refresh-interval}, so token verification normally never waits on Keycloak.
+ * A token signed with an unknown {@code kid} triggers a single refetch shared by all concurrent
+ * callers, at most once per {@code jwt.jwk.min-refetch-interval}. When Keycloak cannot be reached
+ * the last known good key set keeps being served.
+ */
+@Slf4j
+@Component
+public class JwkSetManager implements JWKSource<SecurityContext> {
+    private final RestTemplate restTemplate;
+    private final String jwkSetUri;
+    private final long minRefetchIntervalNanos;
+    private final ScheduledExecutorService scheduler;
+    private volatile JWKSet keys;
+    private volatile long lastFetchNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private CompletableFuture<JWKSet> inFlight;
+
+    public JwkSetManager(RestTemplate restTemplate,
+                         @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                         @Value("${jwt.jwk.refresh-interval:5m}") Duration refreshInterval,
+                         @Value("${jwt.jwk.min-refetch-interval:30s}") Duration minRefetchInterval) {
+        this.restTemplate = restTemplate;
+        this.jwkSetUri = jwkSetUri;
+        this.minRefetchIntervalNanos = minRefetchInterval.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwk-set-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The first run prefetches the keys without delaying startup
+        scheduler.scheduleWithFixedDelay(this::refetch, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Selects the keys matching the selector, refetching the key set once if none match.
+     *
+     * @param selector The key selector built from the token header.
+     * @param context  Unused security context.
+     * @return The matching keys, possibly empty.
+     * @throws KeySourceException If no key set has ever been fetched successfully.
+     */
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        JWKSet current = keys;
+        if (current != null) {
+            List<JWK> matches = selector.select(current);
+            if (!matches.isEmpty()) {
+                return matches;
+            }
+        }
+        // Unknown kid or cold start: coalesced refetch, rate limited unless nothing is cached yet
+        if (current != null && System.nanoTime() - lastFetchNanos < minRefetchIntervalNanos) {
+            return List.of();
+        }
+        JWKSet refreshed = refetch();
+        JWKSet latest = refreshed != null ? refreshed : keys;
+        if (latest == null) {
+            throw new KeySourceException("Could not fetch the JWK set from " + jwkSetUri);
+        }
+        return selector.select(latest);
+    }
+
+    /**
+     * Fetches the key set now, or waits for the fetch another thread already started.
+     *
+     * @return The fetched key set, or null if the fetch failed.
+     */
+    public JWKSet refetch() {
+        CompletableFuture<JWKSet> fetch;
+        boolean owner = false;
+        synchronized (this) {
+            if (inFlight == null || inFlight.isDone()) {
+                inFlight = new CompletableFuture<>();
+                owner = true;
+            }
+            fetch = inFlight;
+        }
+        if (owner) {
+            try {
+                fetch.complete(fetch());
+            } catch (RuntimeException e) {
+                fetch.completeExceptionally(e);
+            }
+        }
+        return fetch.exceptionally(e -> null).join();
+    }
+
+    public JWKSet getKeys() {
+        return keys;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private JWKSet fetch() {
+        try {
+            String body = restTemplate.getForObject(jwkSetUri, String.class);
+            JWKSet fetched = JWKSet.parse(body);
+            keys = fetched;
+            log.debug("Fetched {} signing keys from {}", fetched.getKeys().size(), jwkSetUri);
+            return fetched;
+        } catch (Exception e) {
+            log.warn("Could not fetch JWK set from {}, serving last known keys: {}", jwkSetUri, e.getMessage());
+            throw new IllegalStateException(e);
+        } finally {
+            lastFetchNanos = System.nanoTime();
+        }
+    }
+}
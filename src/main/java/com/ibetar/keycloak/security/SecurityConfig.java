@@ -1,7 +1,12 @@
 package com.ibetar.keycloak.security;
 
 import com.ibetar.keycloak.jwt.JwtAuthConverter;
-import lombok.RequiredArgsConstructor;
+import com.ibetar.keycloak.jwt.RevokedTokenDenylist;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -9,6 +14,10 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
 /**
@@ -29,6 +38,7 @@ public class SecurityConfig {
 
     /**
      * Configures the security filter chain for HTTP requests.
+     * Only the liveness and readiness probes are public; metrics are scraped with a bearer token like any other call.
      *
      * @param http The HttpSecurity object used to configure security settings.
      * @return The configured SecurityFilterChain.
@@ -38,6 +48,7 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable);
         http.authorizeHttpRequests(authorize -> authorize
+                        .requestMatchers("/actuator/health/liveness", "/actuator/health/readiness").permitAll()
                         .anyRequest()
                         .authenticated());
         http.oauth2ResourceServer((rs) -> rs.jwt(
@@ -48,4 +59,28 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    /**
+     * Configures the JWT decoder to resolve signing keys from the locally cached JWK set.
+     * Besides the standard claims, every token is checked against the local denylist of revoked tokens.
+     *
+     * @param jwkSetManager The JwkSetManager holding the realm's signing keys.
+     * @param denylist      The RevokedTokenDenylist fed by logouts and admin actions.
+     * @param issuerUri     The expected token issuer.
+     * @return The JwtDecoder used by the resource server.
+     */
+    @Bean
+    public JwtDecoder jwtDecoder(
+            JwkSetManager jwkSetManager,
+            RevokedTokenDenylist denylist,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSetManager));
+        // Claims are validated by Spring Security below
+        processor.setJWTClaimsSetVerifier((claims, context) -> {});
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(issuerUri), denylist));
+        return decoder;
+    }
 }
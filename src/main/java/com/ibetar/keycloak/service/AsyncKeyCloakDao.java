@@ -0,0 +1,29 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.entity.BulkResult;
+import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.entity.UserPage;
+import com.ibetar.keycloak.entity.UserPatchDTO;
+import com.ibetar.keycloak.entity.UserPatchResult;
+import com.ibetar.keycloak.entity.UserSearchCriteria;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+public interface AsyncKeyCloakDao {
+    CompletableFuture<List<UserRepresentation>> findAllUsers(int first, int max);
+    CompletableFuture<UserPage> findUsersPage(String cursor, int max);
+    CompletableFuture<List<UserRepresentation>> findByUsername(String username);
+    CompletableFuture<List<UserRepresentation>> searchUsers(UserSearchCriteria criteria, int first, int max, boolean brief);
+    CompletableFuture<Integer> countUsers(UserSearchCriteria criteria);
+    CompletableFuture<String> createUser(UserDTO userDTO);
+    CompletableFuture<BulkResult> createUsers(Stream<UserDTO> users, int concurrency);
+    CompletableFuture<Void> deleteUser(String userId);
+    CompletableFuture<BulkResult> deleteUsers(List<String> userIds, int concurrency);
+    CompletableFuture<BulkResult> addRealmRoles(List<String> userIds, List<String> roleNames, int concurrency);
+    CompletableFuture<BulkResult> removeRealmRoles(List<String> userIds, List<String> roleNames, int concurrency);
+    CompletableFuture<Void> updateUser(String userId, UserDTO userDTO);
+    CompletableFuture<UserPatchResult> patchUser(String userId, UserPatchDTO patch);
+}
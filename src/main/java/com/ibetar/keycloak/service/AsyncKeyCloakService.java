@@ -0,0 +1,138 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.entity.BulkResult;
+import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.entity.UserPage;
+import com.ibetar.keycloak.entity.UserPatchDTO;
+import com.ibetar.keycloak.entity.UserPatchResult;
+import com.ibetar.keycloak.entity.UserSearchCriteria;
+import com.ibetar.keycloak.utils.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Asynchronous facade over {@link KeyCloakDao}.
+ * Every call runs on the {@code keycloakAsyncExecutor} (virtual threads when the JDK supports them),
+ * so request threads are released while Keycloak is working. Reads and writes go through separate
+ * bulkheads, sized by {@code keycloak.async.read-concurrency} and {@code keycloak.async.write-concurrency}.
+ * A bulk operation holds one write permit while its items run on the {@code keycloakBulkExecutor}; it is
+ * coordinated from the asynchronous executor so it never waits on the pool running its own items.
+ */
+@Service
+public class AsyncKeyCloakService implements AsyncKeyCloakDao, MeterBinder {
+    private final KeyCloakDao keyCloakDao;
+    private final Executor executor;
+    @Getter
+    private final Bulkhead readBulkhead;
+    @Getter
+    private final Bulkhead writeBulkhead;
+
+    public AsyncKeyCloakService(KeyCloakDao keyCloakDao,
+                                KeyCloakProperties properties,
+                                @Qualifier("keycloakAsyncExecutor") Executor executor) {
+        KeyCloakProperties.Async async = properties.getAsync();
+        this.keyCloakDao = keyCloakDao;
+        this.executor = executor;
+        this.readBulkhead = new Bulkhead("read", async.getReadConcurrency(), async.getMaxWait());
+        this.writeBulkhead = new Bulkhead("write", async.getWriteConcurrency(), async.getMaxWait());
+    }
+
+    @Override
+    public CompletableFuture<List<UserRepresentation>> findAllUsers(int first, int max) {
+        return read(() -> keyCloakDao.findAllUsers(first, max));
+    }
+
+    @Override
+    public CompletableFuture<UserPage> findUsersPage(String cursor, int max) {
+        return read(() -> keyCloakDao.findUsersPage(cursor, max));
+    }
+
+    @Override
+    public CompletableFuture<List<UserRepresentation>> findByUsername(String username) {
+        return read(() -> keyCloakDao.findByUsername(username));
+    }
+
+    @Override
+    public CompletableFuture<List<UserRepresentation>> searchUsers(UserSearchCriteria criteria, int first, int max,
+                                                                   boolean brief) {
+        return read(() -> keyCloakDao.searchUsers(criteria, first, max, brief));
+    }
+
+    @Override
+    public CompletableFuture<Integer> countUsers(UserSearchCriteria criteria) {
+        return read(() -> keyCloakDao.countUsers(criteria));
+    }
+
+    @Override
+    public CompletableFuture<String> createUser(UserDTO userDTO) {
+        return write(() -> keyCloakDao.createUser(userDTO));
+    }
+
+    @Override
+    public CompletableFuture<BulkResult> createUsers(Stream<UserDTO> users, int concurrency) {
+        return write(() -> keyCloakDao.createUsers(users, concurrency));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteUser(String userId) {
+        return write(() -> {
+            keyCloakDao.deleteUser(userId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<BulkResult> deleteUsers(List<String> userIds, int concurrency) {
+        return write(() -> keyCloakDao.deleteUsers(userIds, concurrency));
+    }
+
+    @Override
+    public CompletableFuture<BulkResult> addRealmRoles(List<String> userIds, List<String> roleNames,
+                                                       int concurrency) {
+        return write(() -> keyCloakDao.addRealmRoles(userIds, roleNames, concurrency));
+    }
+
+    @Override
+    public CompletableFuture<BulkResult> removeRealmRoles(List<String> userIds, List<String> roleNames,
+                                                          int concurrency) {
+        return write(() -> keyCloakDao.removeRealmRoles(userIds, roleNames, concurrency));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUser(String userId, UserDTO userDTO) {
+        return write(() -> {
+            keyCloakDao.updateUser(userId, userDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<UserPatchResult> patchUser(String userId, UserPatchDTO patch) {
+        return write(() -> keyCloakDao.patchUser(userId, patch));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        readBulkhead.bindTo(registry);
+        writeBulkhead.bindTo(registry);
+    }
+
+    private <T> CompletableFuture<T> read(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> readBulkhead.call(call), executor);
+    }
+
+    private <T> CompletableFuture<T> write(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> writeBulkhead.call(call), executor);
+    }
+}
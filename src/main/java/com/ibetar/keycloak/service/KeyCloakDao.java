@@ -1,14 +1,30 @@
 package com.ibetar.keycloak.service;
 
+import com.ibetar.keycloak.entity.BulkResult;
 import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.entity.UserPage;
+import com.ibetar.keycloak.entity.UserPatchDTO;
+import com.ibetar.keycloak.entity.UserPatchResult;
+import com.ibetar.keycloak.entity.UserSearchCriteria;
 import org.keycloak.representations.idm.UserRepresentation;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface KeyCloakDao {
     List<UserRepresentation> findAllUsers();
+    List<UserRepresentation> findAllUsers(int first, int max);
+    UserPage findUsersPage(String cursor, int max);
+    Stream<List<UserRepresentation>> streamUserPages(int pageSize);
     List<UserRepresentation> findByUsername(String username);
+    List<UserRepresentation> searchUsers(UserSearchCriteria criteria, int first, int max, boolean brief);
+    int countUsers(UserSearchCriteria criteria);
     String createUser(UserDTO userDTO);
+    BulkResult createUsers(Stream<UserDTO> users, int concurrency);
     void deleteUser(String userId);
+    BulkResult deleteUsers(List<String> userIds, int concurrency);
+    BulkResult addRealmRoles(List<String> userIds, List<String> roleNames, int concurrency);
+    BulkResult removeRealmRoles(List<String> userIds, List<String> roleNames, int concurrency);
     void updateUser(String userId, UserDTO userDTO);
+    UserPatchResult patchUser(String userId, UserPatchDTO patch);
 }
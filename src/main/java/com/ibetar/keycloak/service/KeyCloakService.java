@@ -1,28 +1,105 @@
 package com.ibetar.keycloak.service;
 
+import com.ibetar.keycloak.cache.RealmRoleCache;
+import com.ibetar.keycloak.cache.UserDirectoryCache;
+import com.ibetar.keycloak.cache.UserVersions;
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.entity.BulkItemResult;
+import com.ibetar.keycloak.entity.BulkItemStatus;
+import com.ibetar.keycloak.entity.BulkResult;
 import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.entity.UserPage;
+import com.ibetar.keycloak.entity.UserPatchDTO;
+import com.ibetar.keycloak.entity.UserPatchResult;
+import com.ibetar.keycloak.entity.UserSearchCriteria;
+import com.ibetar.keycloak.exception.BadRequestException;
+import com.ibetar.keycloak.exception.DuplicateResourceException;
+import com.ibetar.keycloak.exception.InternalCreationException;
+import com.ibetar.keycloak.exception.UpstreamTimeoutException;
+import com.ibetar.keycloak.exception.UpstreamUnavailableException;
+import com.ibetar.keycloak.jwt.RevokedTokenDenylist;
+import com.ibetar.keycloak.utils.BoundedPipeline;
 import com.ibetar.keycloak.utils.KeyCloakProvider;
+import com.ibetar.keycloak.utils.KeyCloakResilience;
+import com.ibetar.keycloak.utils.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.OAuth2Constants;
-import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Service class for interacting with Keycloak resources.
  * Implements the KeyCloakDao interface.
+ * <p>
+ * Each step of a user creation is timed in {@code keycloak.user.creation.steps} and every creation
+ * in {@code keycloak.user.creations}, tagged with its outcome.
+ * Concurrent identical reads of users are coalesced into a single call to Keycloak, and every call
+ * to Keycloak goes through {@link KeyCloakResilience}.
  */
 @Service
 @Slf4j
-public class KeyCloakService implements KeyCloakDao {
+public class KeyCloakService implements KeyCloakDao, MeterBinder {
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final String CURSOR_PREFIX = "offset:";
+    private static final String CREATION_METRIC = "keycloak.user.creations";
+    private static final String CREATION_STEP_METRIC = "keycloak.user.creation.steps";
+    private final KeyCloakProvider keyCloakProvider;
+    private final KeyCloakProperties properties;
+    private final RealmRoleCache roleCache;
+    private final UserDirectoryCache userCache;
+    private final Executor bulkExecutor;
+    private final MeterRegistry meterRegistry;
+    private final KeyCloakResilience resilience;
+    private final UserVersions versions;
+    private final RevokedTokenDenylist denylist;
+    private final SingleFlight<String, List<UserRepresentation>> userSearches = new SingleFlight<>("users.search");
+    private final SingleFlight<String, List<UserRepresentation>> userLists = new SingleFlight<>("users.list");
+
+    public KeyCloakService(KeyCloakProvider keyCloakProvider,
+                           KeyCloakProperties properties,
+                           RealmRoleCache roleCache,
+                           UserDirectoryCache userCache,
+                           @Qualifier("keycloakBulkExecutor") Executor bulkExecutor,
+                           MeterRegistry meterRegistry,
+                           KeyCloakResilience resilience,
+                           UserVersions versions,
+                           RevokedTokenDenylist denylist) {
+        this.keyCloakProvider = keyCloakProvider;
+        this.properties = properties;
+        this.roleCache = roleCache;
+        this.userCache = userCache;
+        this.bulkExecutor = bulkExecutor;
+        this.meterRegistry = meterRegistry;
+        this.resilience = resilience;
+        this.versions = versions;
+        this.denylist = denylist;
+    }
+
     /**
      * Retrieves all users from the Keycloak realm.
      *
@@ -30,97 +107,276 @@ public class KeyCloakService implements KeyCloakDao {
      */
     @Override
     public List<UserRepresentation> findAllUsers() {
-        return KeyCloakProvider
+        return userLists.execute("all", () -> resilience.read("users.list", () -> keyCloakProvider
+                .getRealmResource()
+                .users()
+                .list()));
+    }
+
+    /**
+     * Retrieves one page of users from the Keycloak realm.
+     *
+     * @param first The offset of the first user to return.
+     * @param max   The maximum number of users to return, capped at {@value #MAX_PAGE_SIZE}.
+     * @return List of UserRepresentation objects in the requested page.
+     */
+    @Override
+    public List<UserRepresentation> findAllUsers(int first, int max) {
+        if (first < 0 || max <= 0) {
+            throw new BadRequestException("Paging requires first >= 0 and max > 0");
+        }
+        int pageSize = Math.min(max, MAX_PAGE_SIZE);
+        return userLists.execute(first + ":" + pageSize, () -> resilience.read("users.list", () -> keyCloakProvider
                 .getRealmResource()
                 .users()
-                .list();
+                .list(first, pageSize)));
+    }
+
+    /**
+     * Retrieves the page of users starting at the given cursor.
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param max    The maximum number of users to return.
+     * @return A UserPage holding the users and the cursor of the next page.
+     */
+    @Override
+    public UserPage findUsersPage(String cursor, int max) {
+        int first = decodeCursor(cursor);
+        int pageSize = Math.min(max, MAX_PAGE_SIZE);
+        List<UserRepresentation> users = findAllUsers(first, pageSize);
+        String nextCursor = users.size() < pageSize ? null : encodeCursor(first + users.size());
+        return new UserPage(users, nextCursor);
+    }
+
+    /**
+     * Lazily streams every user of the realm one page at a time.
+     * A page is only fetched from Keycloak once the previous one has been consumed.
+     *
+     * @param pageSize The number of users fetched per upstream call.
+     * @return A sequential Stream of user pages.
+     */
+    @Override
+    public Stream<List<UserRepresentation>> streamUserPages(int pageSize) {
+        return Stream.iterate(
+                        findUsersPage(null, pageSize),
+                        Objects::nonNull,
+                        page -> page.nextCursor() == null ? null : findUsersPage(page.nextCursor(), pageSize))
+                .map(UserPage::users)
+                .filter(users -> !users.isEmpty());
     }
 
     /**
      * Retrieves users by username from the Keycloak realm.
+     * Results are served from the UserDirectoryCache when present. A result fetched while the user
+     * was changed through this service is returned but not cached, since it may predate the change.
      *
      * @param username The username to search for.
      * @return List of UserRepresentation objects matching the username.
      */
     @Override
     public List<UserRepresentation> findByUsername(String username) {
-        return KeyCloakProvider
-                .getRealmResource()
-                .users()
-                .searchByUsername(username, true);
+        return userCache.get(username).orElseGet(() ->
+                userSearches.execute(username.toLowerCase(Locale.ROOT), () -> {
+                    long generation = userCache.generation();
+                    List<UserRepresentation> users = resilience.read("users.search", () -> keyCloakProvider
+                            .getRealmResource()
+                            .users()
+                            .searchByUsername(username, true));
+                    userCache.putIfUnchanged(username, users, generation);
+                    versions.remember(username, users);
+                    return users;
+                }));
+    }
+
+    /**
+     * Searches users by several criteria at once.
+     * The criteria and the paging are pushed down to Keycloak, so only the requested page is transferred.
+     *
+     * @param criteria The search criteria, null criteria are ignored.
+     * @param first    The offset of the first user to return.
+     * @param max      The maximum number of users to return, capped at {@value #MAX_PAGE_SIZE}.
+     * @param brief    Whether Keycloak may leave out attributes and other details of the users.
+     * @return List of UserRepresentation objects matching every criterion.
+     */
+    @Override
+    public List<UserRepresentation> searchUsers(UserSearchCriteria criteria, int first, int max, boolean brief) {
+        if (first < 0 || max <= 0) {
+            throw new BadRequestException("Paging requires first >= 0 and max > 0");
+        }
+        int pageSize = Math.min(max, MAX_PAGE_SIZE);
+        return userLists.execute("search:" + criteria + ":" + first + ":" + pageSize + ":" + brief,
+                () -> resilience.read("users.search", () -> keyCloakProvider
+                        .getUserResource()
+                        .search(criteria.username(), criteria.firstName(), criteria.lastName(), criteria.email(),
+                                criteria.emailVerified(), null, null, first, pageSize, criteria.enabled(), brief)));
+    }
+
+    /**
+     * Counts the users matching the criteria without transferring them.
+     *
+     * @param criteria The search criteria, null criteria are ignored.
+     * @return The number of matching users.
+     */
+    @Override
+    public int countUsers(UserSearchCriteria criteria) {
+        Integer count = resilience.read("users.count", () -> keyCloakProvider
+                .getUserResource()
+                .count(null, criteria.lastName(), criteria.firstName(), criteria.email(),
+                        criteria.emailVerified(), criteria.username(), criteria.enabled(), null));
+        return count == null ? 0 : count;
     }
 
     /**
      * Creates a new user in the Keycloak realm based on the provided UserDTO.
      *
      * @param userDTO The UserDTO containing user information.
-     * @return A message indicating the result of the user creation process.
+     * @return The id of the created user.
+     * @throws BadRequestException        If a requested role does not exist in the realm.
+     * @throws DuplicateResourceException If a user with the same username or email already exists.
+     * @throws InternalCreationException  If Keycloak did not create the user or assign its roles.
+     * @throws UpstreamUnavailableException If Keycloak was unavailable while assigning the roles.
      */
     @Override
     public String createUser(UserDTO userDTO) {
-        log.info("Creating user {} {}", userDTO.firstName(), userDTO.lastName());
-        int status = 0;
-        UsersResource usersResource = KeyCloakProvider.getUserResource();
+        BulkItemResult result = createUser(keyCloakProvider.getUserResource(), userDTO, this::resolveRoles);
+        return switch (result.status()) {
+            case SUCCESS -> result.userId();
+            case CONFLICT -> throw new DuplicateResourceException(result.message());
+            case UNAVAILABLE -> throw new UpstreamUnavailableException(result.message());
+            default -> throw new InternalCreationException(result.message());
+        };
+    }
 
-        // 1. Create a new UserRepresentation and populate it with data from the UserDTO
-        UserRepresentation user = buildUserRepresentationFromDTO(userDTO);
+    /**
+     * Creates the given users with a bounded number of creations in flight.
+     * The realm resource and the role resolution of each distinct role list are shared by the whole batch.
+     *
+     * @param users       The users to create, consumed lazily.
+     * @param concurrency The number of users created in parallel, capped at {@code keycloak.bulk.max-concurrency};
+     *                    zero or less uses {@code keycloak.bulk.concurrency}.
+     * @return A BulkResult with one result per user in input order.
+     */
+    @Override
+    public BulkResult createUsers(Stream<UserDTO> users, int concurrency) {
+        UsersResource usersResource = keyCloakProvider.getUserResource();
+        Map<List<String>, List<RoleRepresentation>> batchRoles = new ConcurrentHashMap<>();
+        Function<List<String>, List<RoleRepresentation>> roleResolver = roleNames ->
+                batchRoles.computeIfAbsent(roleNames == null ? List.of() : roleNames, this::resolveRoles);
 
-        // 2. Create/Update the user
-        try (Response response = usersResource.create(user)) {
-            log.info("Creating Response from usersResource");
+        List<BulkItemResult> results = BoundedPipeline.run(
+                users,
+                bulkConcurrency(concurrency),
+                bulkExecutor,
+                userDTO -> createUser(usersResource, userDTO, roleResolver),
+                (userDTO, e) -> new BulkItemResult(userDTO.username(), failureStatus(e), null, e.getMessage()));
+        BulkResult bulkResult = BulkResult.of(results);
+        log.info("Bulk creation finished: {} created, {} conflicts, {} failed",
+                bulkResult.succeeded(), bulkResult.conflicts(), bulkResult.failed());
+        return bulkResult;
+    }
 
-            if (response.getStatus() == Response.Status.CREATED.getStatusCode()) {
-                log.info("Response as Status CREATED");
-                String path = response.getLocation().getPath();
-                String userId = path.substring(path.lastIndexOf("/") + 1);
-
-                CredentialRepresentation credential = new CredentialRepresentation();
-                log.info("Creating Credential Representation...");
-                credential.setTemporary(false);
-                credential.setType(OAuth2Constants.PASSWORD);
-                credential.setValue(userDTO.password());
-
-                usersResource.get(userId).resetPassword(credential);
-
-                RealmResource realmResource = KeyCloakProvider.getRealmResource();
-                log.info("Retrieving RealmResource associated to user from KeyCloakProvider...");
-
-                List<RoleRepresentation> roleRepresentations;
-
-                if (userDTO.roles() == null || userDTO.roles().isEmpty()) {
-                    log.info("Role Representations not found for user");
-                    roleRepresentations = List.of(realmResource.roles().get("user").toRepresentation());
-
-                } else {
-                    log.info("Role Representations found for user");
-                    roleRepresentations = realmResource.roles()
-                            .list()
-                            .stream()
-                            .filter(role -> userDTO.roles()
-                                    .stream()
-                                    .anyMatch(roleName -> roleName.equalsIgnoreCase(role.getName())))
-                            .toList();
+    /**
+     * Creates a single user with its password and assigns its realm roles.
+     * The roles are resolved from the role cache before the user is created and the password is
+     * sent with the user representation, so a creation takes one call to Keycloak plus one for the
+     * role assignment. When the roles cannot be assigned the user is removed again, so a retry starts
+     * from scratch instead of hitting a conflict; if that fails too the result is PARTIAL.
+     *
+     * @param usersResource The UsersResource of the realm.
+     * @param userDTO       The UserDTO containing user information.
+     * @param roleResolver  Resolves the requested role names to role representations.
+     * @return A BulkItemResult describing the outcome.
+     */
+    protected BulkItemResult createUser(UsersResource usersResource,
+                                        UserDTO userDTO,
+                                        Function<List<String>, List<RoleRepresentation>> roleResolver) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        BulkItemResult result = doCreateUser(usersResource, userDTO, roleResolver);
+        sample.stop(meterRegistry.timer(CREATION_METRIC, "outcome", result.status().name()));
+        return result;
+    }
+
+    private BulkItemResult doCreateUser(UsersResource usersResource,
+                                        UserDTO userDTO,
+                                        Function<List<String>, List<RoleRepresentation>> roleResolver) {
+        log.info("Creating user {} {}", userDTO.firstName(), userDTO.lastName());
+        String userId;
+        List<RoleRepresentation> roleRepresentations;
+
+        try {
+            // 1. Resolve the roles locally, an unknown role fails before anything is created
+            roleRepresentations = step("resolve-roles", () -> roleResolver.apply(userDTO.roles()));
+
+            // 2. Create the user together with its credentials
+            UserRepresentation user = buildUserRepresentationFromDTO(userDTO);
+            try (Response response = step("create", () -> resilience.write("users.create", () -> usersResource.create(user)))) {
+                int status = response.getStatus();
+                if (status == Response.Status.CONFLICT.getStatusCode()) {
+                    log.error("User already exists. Please contact the administrator.");
+                    return new BulkItemResult(userDTO.username(), BulkItemStatus.CONFLICT, null,
+                            "User already exists. Please contact the administrator.");
+                } else if (status != Response.Status.CREATED.getStatusCode()) {
+                    log.error("Failed to create user: {}", response.getStatusInfo().getReasonPhrase());
+                    return new BulkItemResult(userDTO.username(), BulkItemStatus.FAILED, null,
+                            "Failed to create user: " + response.getStatusInfo().getReasonPhrase());
                 }
-                log.info("Setting/Add roleRepresentations to realmResource Representations for user");
-                realmResource.users()
-                        .get(userId)
-                        .roles()
-                        .realmLevel()
-                        .add(roleRepresentations);
-
-                log.info("User created successfully");
-                return "User created successfully";
-            } else if (status == Response.Status.CONFLICT.getStatusCode()) {
-                log.error("User already exists. Please contact the administrator.");
-                return "User already exists. Please contact the administrator.";
-            } else {
-                log.error("Failed to create user: {}", response.getStatusInfo().getReasonPhrase());
-                return "Failed to create user: " + response.getStatusInfo().getReasonPhrase();
+                String path = response.getLocation().getPath();
+                userId = path.substring(path.lastIndexOf("/") + 1);
+                userCache.evictUsername(userDTO.username());
+                versions.usernameChanged(userDTO.username());
             }
+        } catch (UpstreamUnavailableException | UpstreamTimeoutException | BadRequestException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error occurred while creating user: {}", e.getMessage());
-            return "Error occurred while creating user. Please contact the administrator";
+            return new BulkItemResult(userDTO.username(), BulkItemStatus.FAILED, null,
+                    "Error occurred while creating user. Please contact the administrator");
         }
+
+        // 3. Assign the realm roles, the only call that needs the new id
+        if (!roleRepresentations.isEmpty()) {
+            try {
+                step("assign-roles", () -> {
+                    resilience.write("users.roles.add",
+                            () -> usersResource.get(userId).roles().realmLevel().add(roleRepresentations));
+                    return null;
+                });
+            } catch (Exception e) {
+                log.error("User {} created but its roles could not be assigned: {}", userId, e.getMessage());
+                return rollBackCreation(usersResource, userDTO.username(), userId, e);
+            }
+        }
+
+        log.info("User created successfully");
+        return new BulkItemResult(userDTO.username(), BulkItemStatus.SUCCESS, userId, "User created successfully");
+    }
+
+    /**
+     * Removes a user whose roles could not be assigned.
+     *
+     * @param usersResource The UsersResource of the realm.
+     * @param username      The username of the user.
+     * @param userId        The id of the created user.
+     * @param cause         Why the role assignment failed.
+     * @return A FAILED or UNAVAILABLE result once the user is removed, PARTIAL if it is still there.
+     */
+    private BulkItemResult rollBackCreation(UsersResource usersResource, String username, String userId, Exception cause) {
+        try {
+            step("rollback", () -> {
+                resilience.write("users.delete", () -> usersResource.get(userId).remove());
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("User {} could not be removed after its roles failed: {}", userId, e.getMessage());
+            return new BulkItemResult(username, BulkItemStatus.PARTIAL, userId,
+                    "User created without its roles. Assign them or delete the user");
+        } finally {
+            userCache.evictUsername(username);
+            versions.usernameChanged(username);
+        }
+        log.info("User {} removed after its roles could not be assigned", userId);
+        return new BulkItemResult(username, failureStatus(cause), null,
+                "The roles of the user could not be assigned, the user was not created");
     }
 
     /**
@@ -130,7 +386,73 @@ public class KeyCloakService implements KeyCloakDao {
      */
     @Override
     public void deleteUser(String userId) {
-        KeyCloakProvider.getUserResource().get(userId).remove();
+        resilience.write("users.delete", () -> keyCloakProvider.getUserResource().get(userId).remove());
+        userCache.evictUserId(userId);
+        versions.userIdChanged(userId);
+        denylist.revokeSubject(userId);
+    }
+
+    /**
+     * Deletes the given users with a bounded number of deletions in flight.
+     * Duplicate ids are deleted once.
+     *
+     * @param userIds     The ids of the users to delete.
+     * @param concurrency The number of users deleted in parallel, capped at {@code keycloak.bulk.max-concurrency};
+     *                    zero or less uses {@code keycloak.bulk.concurrency}.
+     * @return A BulkResult with one result per distinct id in request order.
+     */
+    @Override
+    public BulkResult deleteUsers(List<String> userIds, int concurrency) {
+        UsersResource usersResource = keyCloakProvider.getUserResource();
+        BulkResult result = forEachUser(userIds, concurrency, userId -> {
+            resilience.write("users.delete", () -> usersResource.get(userId).remove());
+            userCache.evictUserId(userId);
+            versions.userIdChanged(userId);
+            denylist.revokeSubject(userId);
+            return "User deleted";
+        });
+        log.info("Bulk deletion finished: {} deleted, {} failed", result.succeeded(), result.failed());
+        return result;
+    }
+
+    /**
+     * Assigns the given realm roles to every user of the set, with a bounded number of users in flight.
+     * The roles are resolved once for the whole batch.
+     *
+     * @param userIds     The ids of the users.
+     * @param roleNames   The names of the realm roles to assign.
+     * @param concurrency The number of users updated in parallel, see {@link #deleteUsers}.
+     * @return A BulkResult with one result per distinct id in request order.
+     * @throws BadRequestException If a role does not exist in the realm.
+     */
+    @Override
+    public BulkResult addRealmRoles(List<String> userIds, List<String> roleNames, int concurrency) {
+        List<RoleRepresentation> roles = resolveBatchRoles(roleNames);
+        UsersResource usersResource = keyCloakProvider.getUserResource();
+        return forEachUser(userIds, concurrency, userId -> {
+            resilience.write("users.roles.add", () -> usersResource.get(userId).roles().realmLevel().add(roles));
+            return "Roles assigned";
+        });
+    }
+
+    /**
+     * Unassigns the given realm roles from every user of the set, with a bounded number of users in flight.
+     * The roles are resolved once for the whole batch.
+     *
+     * @param userIds     The ids of the users.
+     * @param roleNames   The names of the realm roles to unassign.
+     * @param concurrency The number of users updated in parallel, see {@link #deleteUsers}.
+     * @return A BulkResult with one result per distinct id in request order.
+     * @throws BadRequestException If a role does not exist in the realm.
+     */
+    @Override
+    public BulkResult removeRealmRoles(List<String> userIds, List<String> roleNames, int concurrency) {
+        List<RoleRepresentation> roles = resolveBatchRoles(roleNames);
+        UsersResource usersResource = keyCloakProvider.getUserResource();
+        return forEachUser(userIds, concurrency, userId -> {
+            resilience.write("users.roles.remove", () -> usersResource.get(userId).roles().realmLevel().remove(roles));
+            return "Roles unassigned";
+        });
     }
 
     /**
@@ -141,11 +463,8 @@ public class KeyCloakService implements KeyCloakDao {
      */
     @Override
     public void updateUser(String userId, UserDTO userDTO) {
-        CredentialRepresentation credentialUpdated = new CredentialRepresentation();
         log.info("Updating credentials for user {}...", userDTO.username());
-        credentialUpdated.setTemporary(false);
-        credentialUpdated.setType(OAuth2Constants.PASSWORD);
-        credentialUpdated.setValue(userDTO.password());
+        CredentialRepresentation credentialUpdated = passwordCredential(userDTO.password());
 
         UserRepresentation updatedUser = new UserRepresentation();
         updatedUser.setUsername(userDTO.username());
@@ -157,12 +476,73 @@ public class KeyCloakService implements KeyCloakDao {
         updatedUser.setCredentials(Collections.singletonList(credentialUpdated));
         updatedUser.setRealmRoles(userDTO.roles());
 
-        UserResource userResource = KeyCloakProvider.getUserResource().get(userId);
+        UserResource userResource = keyCloakProvider.getUserResource().get(userId);
 
-        userResource.update(updatedUser);
+        resilience.write("users.update", () -> userResource.update(updatedUser));
+        userCache.evictUserId(userId);
+        userCache.evictUsername(userDTO.username());
+        versions.userIdChanged(userId);
+        versions.usernameChanged(userDTO.username());
         log.info("UserResource {} updated successfully!", userDTO.username());
     }
 
+    /**
+     * Partially updates a user, sending only what changed.
+     * The profile is compared with the current representation, and only the fields that differ are sent,
+     * in an otherwise empty representation: Keycloak leaves null fields alone, so concurrent changes to
+     * other fields, attributes or required actions are kept, and without credentials it does not re-hash
+     * the password. Setting the password and changing roles are separate calls, made only when the patch
+     * asks for them.
+     *
+     * @param userId The ID of the user to update.
+     * @param patch  The fields to change, null fields are left unchanged.
+     * @return A UserPatchResult describing what was changed.
+     * @throws BadRequestException If a role to add or remove does not exist in the realm.
+     */
+    @Override
+    public UserPatchResult patchUser(String userId, UserPatchDTO patch) {
+        UserResource userResource = keyCloakProvider.getUserResource().get(userId);
+        // Roles are resolved first, so an unknown role rejects the patch before anything is written
+        List<RoleRepresentation> added = resolvePatchRoles(patch.addRoles());
+        List<RoleRepresentation> removed = resolvePatchRoles(patch.removeRoles());
+
+        // 1. Profile, only the fields that differ from the current representation
+        List<String> updatedFields = List.of();
+        if (patch.email() != null || patch.firstName() != null || patch.lastName() != null || patch.enabled() != null) {
+            UserRepresentation current = resilience.read("users.get", userResource::toRepresentation);
+            UserRepresentation changes = new UserRepresentation();
+            updatedFields = diff(current, patch, changes);
+            if (!updatedFields.isEmpty()) {
+                resilience.write("users.update", () -> userResource.update(changes));
+                log.info("Updated {} of user {}", updatedFields, userId);
+            }
+        }
+
+        // 2. Password, a new credential only when one is given
+        boolean passwordReset = patch.password() != null && !patch.password().isEmpty();
+        if (passwordReset) {
+            resilience.write("users.reset-password", () -> userResource.resetPassword(passwordCredential(patch.password())));
+        }
+
+        // 3. Roles, assigned or unassigned in one call each
+        if (!added.isEmpty()) {
+            resilience.write("users.roles.add", () -> userResource.roles().realmLevel().add(added));
+        }
+        if (!removed.isEmpty()) {
+            resilience.write("users.roles.remove", () -> userResource.roles().realmLevel().remove(removed));
+        }
+
+        if (!updatedFields.isEmpty()) {
+            userCache.evictUserId(userId);
+            versions.userIdChanged(userId);
+        }
+        if (updatedFields.contains("enabled") && Boolean.FALSE.equals(patch.enabled())) {
+            // A disabled user keeps valid access tokens until they expire otherwise
+            denylist.revokeSubject(userId);
+        }
+        return new UserPatchResult(userId, updatedFields, passwordReset, roleNames(added), roleNames(removed));
+    }
+
     /**
      * Builds a UserRepresentation object from the provided UserDTO.
      *
@@ -179,10 +559,181 @@ public class KeyCloakService implements KeyCloakDao {
         user.setEmailVerified(true);
         user.setEnabled(true);
 
+        if (userDTO.password() != null && !userDTO.password().isEmpty()) {
+            user.setCredentials(List.of(passwordCredential(userDTO.password())));
+        }
         if (userDTO.roles() != null && !userDTO.roles().isEmpty()) {
             user.setRealmRoles(userDTO.roles());
         }
         log.info("Build completed successfully");
         return user;
     }
-}
\ No newline at end of file
+
+    /**
+     * Copies the non-null fields of the patch that differ from the current representation onto the changes.
+     *
+     * @param current The current representation of the user.
+     * @param patch   The requested changes.
+     * @param changes An empty representation receiving the changed fields.
+     * @return The names of the changed fields.
+     */
+    private static List<String> diff(UserRepresentation current, UserPatchDTO patch, UserRepresentation changes) {
+        List<String> changed = new ArrayList<>(4);
+        if (patch.email() != null && !patch.email().equals(current.getEmail())) {
+            changes.setEmail(patch.email());
+            changed.add("email");
+        }
+        if (patch.firstName() != null && !patch.firstName().equals(current.getFirstName())) {
+            changes.setFirstName(patch.firstName());
+            changed.add("firstName");
+        }
+        if (patch.lastName() != null && !patch.lastName().equals(current.getLastName())) {
+            changes.setLastName(patch.lastName());
+            changed.add("lastName");
+        }
+        if (patch.enabled() != null && !patch.enabled().equals(current.isEnabled())) {
+            changes.setEnabled(patch.enabled());
+            changed.add("enabled");
+        }
+        return changed;
+    }
+
+    private List<RoleRepresentation> resolvePatchRoles(List<String> roleNames) {
+        if (roleNames == null || roleNames.isEmpty()) {
+            return List.of();
+        }
+        return resolveKnownRoles(roleNames);
+    }
+
+    private List<RoleRepresentation> resolveBatchRoles(List<String> roleNames) {
+        if (roleNames == null || roleNames.isEmpty()) {
+            throw new BadRequestException("At least one role is required");
+        }
+        return resolveKnownRoles(roleNames);
+    }
+
+    private List<RoleRepresentation> resolveKnownRoles(List<String> roleNames) {
+        List<RoleRepresentation> roles = roleCache.resolve(keyCloakProvider.getRealmName(), roleNames);
+        List<String> unknown = roleNames.stream()
+                .filter(name -> roles.stream().noneMatch(role -> role.getName().equalsIgnoreCase(name)))
+                .toList();
+        if (!unknown.isEmpty()) {
+            throw new BadRequestException("Unknown realm roles: " + unknown);
+        }
+        return roles;
+    }
+
+    /**
+     * Applies an operation to every distinct user id with bounded parallelism.
+     *
+     * @param userIds     The ids of the users.
+     * @param concurrency The requested concurrency.
+     * @param operation   Applied to each id, returns the message of a successful result.
+     * @return A BulkResult with one result per distinct id in request order.
+     */
+    private BulkResult forEachUser(List<String> userIds, int concurrency, Function<String, String> operation) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new BadRequestException("At least one user id is required");
+        }
+        List<BulkItemResult> results = BoundedPipeline.run(
+                new LinkedHashSet<>(userIds).stream(),
+                bulkConcurrency(concurrency),
+                bulkExecutor,
+                userId -> new BulkItemResult(userId, BulkItemStatus.SUCCESS, userId, operation.apply(userId)),
+                (userId, e) -> e instanceof NotFoundException
+                        ? new BulkItemResult(userId, BulkItemStatus.NOT_FOUND, userId, "User not found")
+                        : new BulkItemResult(userId, failureStatus(e), userId, e.getMessage()));
+        return BulkResult.of(results);
+    }
+
+    private static BulkItemStatus failureStatus(Throwable e) {
+        return e instanceof UpstreamUnavailableException || e instanceof UpstreamTimeoutException
+                ? BulkItemStatus.UNAVAILABLE
+                : BulkItemStatus.FAILED;
+    }
+
+    private static List<String> roleNames(List<RoleRepresentation> roles) {
+        return roles.stream().map(RoleRepresentation::getName).toList();
+    }
+
+    /**
+     * Builds a permanent password credential.
+     *
+     * @param password The password.
+     * @return A CredentialRepresentation holding the password.
+     */
+    private static CredentialRepresentation passwordCredential(String password) {
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setTemporary(false);
+        credential.setType(OAuth2Constants.PASSWORD);
+        credential.setValue(password);
+        return credential;
+    }
+
+    /**
+     * Resolves the requested realm roles from the role cache, falling back to the default role
+     * when none are requested.
+     *
+     * @param roleNames The requested role names, may be null or empty.
+     * @return List of RoleRepresentation objects to assign.
+     * @throws BadRequestException If a requested role does not exist in the realm.
+     */
+    protected List<RoleRepresentation> resolveRoles(List<String> roleNames) {
+        String realm = keyCloakProvider.getRealmName();
+        if (roleNames == null || roleNames.isEmpty()) {
+            log.info("Role Representations not found for user, using default role");
+            return roleCache.find(realm, properties.getRoles().getDefaultRole())
+                    .map(List::of)
+                    .orElse(List.of());
+        }
+        return resolveKnownRoles(roleNames);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        userSearches.bindTo(registry);
+        userLists.bindTo(registry);
+    }
+
+    private <T> T step(String step, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "SUCCESS";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = "ERROR";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer(CREATION_STEP_METRIC, "step", step, "outcome", outcome));
+        }
+    }
+
+    private int bulkConcurrency(int requested) {
+        KeyCloakProperties.Bulk bulk = properties.getBulk();
+        return requested <= 0 ? bulk.getConcurrency() : Math.min(requested, bulk.getMaxConcurrency());
+    }
+
+    private static String encodeCursor(int offset) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((CURSOR_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                int offset = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+                if (offset >= 0) {
+                    return offset;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Could not decode cursor {}", cursor);
+        }
+        throw new BadRequestException("Invalid cursor: " + cursor);
+    }
+}
@@ -0,0 +1,251 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.exception.UpstreamTimeoutException;
+import com.ibetar.keycloak.exception.UpstreamUnavailableException;
+import com.ibetar.keycloak.utils.KeyCloakProvider;
+import com.ibetar.keycloak.utils.KeyCloakResilience;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Propagates logouts to Keycloak in the background.
+ * Browser logouts are sent to the end-session endpoint with the id token hint; bearer logouts end the
+ * Keycloak session through the admin API, or every session of the user when the token names none.
+ * Logouts are queued in a bounded in-memory queue and sent by a small pool of workers, each sending
+ * one logout at a time, so the logout request itself never waits for Keycloak.
+ * Timeouts, connection failures and server errors are retried with full-jitter exponential backoff;
+ * logouts that are rejected by Keycloak, run out of attempts or do not fit in the queue are written
+ * to the {@code keycloak.logout.dead-letter} log.
+ * <p>
+ * The queue is exposed as {@code keycloak.logout.queue.*} gauges and the outcomes as
+ * {@code keycloak.logout.propagations}.
+ */
+@Slf4j
+@Service
+public class LogoutPropagationService implements MeterBinder {
+    private static final Logger deadLetters = LoggerFactory.getLogger("keycloak.logout.dead-letter");
+    private final RestTemplate restTemplate;
+    private final KeyCloakProvider keyCloakProvider;
+    private final KeyCloakResilience resilience;
+    private final KeyCloakProperties.Logout settings;
+    private final BlockingQueue<LogoutRequest> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retryScheduler;
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean running = true;
+
+    public LogoutPropagationService(RestTemplate restTemplate,
+                                    KeyCloakProvider keyCloakProvider,
+                                    KeyCloakResilience resilience,
+                                    KeyCloakProperties properties) {
+        this.restTemplate = restTemplate;
+        this.keyCloakProvider = keyCloakProvider;
+        this.resilience = resilience;
+        this.settings = properties.getLogout();
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keycloak-logout-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 1; i <= settings.getWorkers(); i++) {
+            Thread worker = new Thread(this::work, "keycloak-logout-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues a logout without waiting for it to be sent.
+     *
+     * @param endSessionUri The end-session URI, including the id token hint.
+     * @param subject       The subject of the user, used in logs.
+     * @return false if the queue was full and the logout was dead-lettered.
+     */
+    public boolean submit(URI endSessionUri, String subject) {
+        // The URI carries the id token hint, only the endpoint is logged
+        return enqueue(new LogoutRequest(subject, endSessionUri.getPath(),
+                () -> restTemplate.getForEntity(endSessionUri, Void.class), 1));
+    }
+
+    /**
+     * Queues the end of a Keycloak session through the admin API without waiting for it.
+     *
+     * @param sessionId The session id ({@code sid}) of the token, null to end every session of the subject.
+     * @param subject   The subject of the user, the Keycloak user id.
+     * @return false if the queue was full and the logout was dead-lettered.
+     */
+    public boolean endSession(String sessionId, String subject) {
+        if (sessionId != null && !sessionId.isEmpty()) {
+            return enqueue(new LogoutRequest(subject, "session " + sessionId, () -> resilience.write("sessions.delete",
+                    () -> keyCloakProvider.getRealmResource().deleteSession(sessionId, false)), 1));
+        }
+        return enqueue(new LogoutRequest(subject, "sessions of the user", () -> resilience.write("users.logout",
+                () -> keyCloakProvider.getUserResource().get(subject).logout()), 1));
+    }
+
+    private boolean enqueue(LogoutRequest request) {
+        if (running && queue.offer(request)) {
+            return true;
+        }
+        rejected.increment();
+        deadLetter(request, "queue full");
+        return false;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getPendingRetries() {
+        return pendingRetries.get();
+    }
+
+    /**
+     * Stops the workers and dead-letters the logouts that are still queued after the shutdown timeout.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        long deadline = System.nanoTime() + settings.getShutdownTimeout().toNanos();
+        while (!queue.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        running = false;
+        retryScheduler.shutdownNow();
+        workers.forEach(Thread::interrupt);
+        List<LogoutRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(request -> deadLetter(request, "shutdown"));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("keycloak.logout.queue.depth", this, LogoutPropagationService::getQueueDepth)
+                .description("Logouts waiting to be propagated")
+                .register(registry);
+        Gauge.builder("keycloak.logout.queue.capacity", queue, q -> q.size() + q.remainingCapacity())
+                .description("Capacity of the logout queue")
+                .register(registry);
+        Gauge.builder("keycloak.logout.retries.pending", this, LogoutPropagationService::getPendingRetries)
+                .description("Logouts waiting for their next attempt")
+                .register(registry);
+        outcomeCounter(registry, "SUCCESS", succeeded);
+        outcomeCounter(registry, "RETRIED", retried);
+        outcomeCounter(registry, "DEAD_LETTER", deadLettered);
+        outcomeCounter(registry, "REJECTED", rejected);
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                send(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(LogoutRequest request) {
+        try {
+            request.call().run();
+            succeeded(request);
+        } catch (RestClientResponseException e) {
+            HttpStatusCode status = e.getStatusCode();
+            if (status.is5xxServerError() || status.value() == 429) {
+                retry(request, "status " + status.value());
+            } else {
+                deadLetter(request, "status " + status.value());
+            }
+        } catch (WebApplicationException e) {
+            int status = e.getResponse().getStatus();
+            if (status == 404) {
+                // The session has already ended
+                succeeded(request);
+            } else if (status >= 500 || status == 429) {
+                retry(request, "status " + status);
+            } else {
+                deadLetter(request, "status " + status);
+            }
+        } catch (RestClientException | ProcessingException | UpstreamUnavailableException
+                 | UpstreamTimeoutException e) {
+            retry(request, e.getMessage());
+        }
+    }
+
+    private void succeeded(LogoutRequest request) {
+        succeeded.increment();
+        log.debug("Propagated logout of {} to Keycloak", request.subject());
+    }
+
+    private void retry(LogoutRequest request, String reason) {
+        if (request.attempt() >= settings.getMaxAttempts() || !running) {
+            deadLetter(request, reason);
+            return;
+        }
+        long ceiling = Math.min(settings.getMaxBackoff().toMillis(),
+                settings.getInitialBackoff().toMillis() << Math.min(request.attempt() - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        LogoutRequest next = new LogoutRequest(request.subject(), request.target(), request.call(),
+                request.attempt() + 1);
+        retried.increment();
+        pendingRetries.incrementAndGet();
+        log.debug("Logout of {} failed ({}), retrying in {} ms", request.subject(), reason, delay);
+        retryScheduler.schedule(() -> {
+            pendingRetries.decrementAndGet();
+            if (!queue.offer(next)) {
+                rejected.increment();
+                deadLetter(next, "queue full");
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deadLetter(LogoutRequest request, String reason) {
+        deadLettered.increment();
+        deadLetters.warn("Logout of {} not propagated to {} after {} attempt(s): {}",
+                request.subject(), request.target(), request.attempt(), reason);
+    }
+
+    private static void outcomeCounter(MeterRegistry registry, String outcome, LongAdder counter) {
+        FunctionCounter.builder("keycloak.logout.propagations", counter, LongAdder::sum)
+                .description("Logouts propagated to Keycloak by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * A queued logout: the call to Keycloak and what it ends, for the logs.
+     */
+    private record LogoutRequest(String subject, String target, Runnable call, int attempt) {}
+}
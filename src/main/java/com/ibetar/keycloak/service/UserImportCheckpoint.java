@@ -0,0 +1,56 @@
+package com.ibetar.keycloak.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Last committed position of an import, persisted next to the imported file.
+ *
+ * @param offset    The byte offset just after the last committed record.
+ * @param processed The number of records processed up to the offset.
+ * @param succeeded The number of users created.
+ * @param conflicts The number of users that already existed.
+ * @param failed    The number of users that could not be created.
+ */
+record UserImportCheckpoint(long offset, long processed, long succeeded, long conflicts, long failed) {
+    static final UserImportCheckpoint START = new UserImportCheckpoint(0, 0, 0, 0, 0);
+
+    static UserImportCheckpoint read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return START;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            properties.load(input);
+        }
+        return new UserImportCheckpoint(
+                Long.parseLong(properties.getProperty("offset", "0")),
+                Long.parseLong(properties.getProperty("processed", "0")),
+                Long.parseLong(properties.getProperty("succeeded", "0")),
+                Long.parseLong(properties.getProperty("conflicts", "0")),
+                Long.parseLong(properties.getProperty("failed", "0")));
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file and atomically moves it in place,
+     * so a crash never leaves a partially written checkpoint behind.
+     */
+    void write(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(offset));
+        properties.setProperty("processed", Long.toString(processed));
+        properties.setProperty("succeeded", Long.toString(succeeded));
+        properties.setProperty("conflicts", Long.toString(conflicts));
+        properties.setProperty("failed", Long.toString(failed));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            properties.store(output, "User import checkpoint");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.entity.BulkResult;
+import com.ibetar.keycloak.entity.ImportFormat;
+import com.ibetar.keycloak.entity.ImportStatus;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Mutable state of a running user import, updated by the import worker after each committed chunk.
+ */
+@Getter
+class UserImportJob {
+    enum State { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Path file;
+    private final Path checkpointFile;
+    private final ImportFormat format;
+    private final int concurrency;
+    private final long totalBytes;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile String error;
+    private volatile long offset;
+    private volatile long processed;
+    private volatile long succeeded;
+    private volatile long conflicts;
+    private volatile long failed;
+    private volatile long runStartNanos;
+    private volatile long runStartOffset;
+    private volatile long runStartProcessed;
+
+    UserImportJob(Path file, Path checkpointFile, ImportFormat format, int concurrency, long totalBytes) {
+        this.file = file;
+        this.checkpointFile = checkpointFile;
+        this.format = format;
+        this.concurrency = concurrency;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Marks the job as running from the given checkpoint.
+     */
+    void start(UserImportCheckpoint checkpoint) {
+        offset = checkpoint.offset();
+        processed = checkpoint.processed();
+        succeeded = checkpoint.succeeded();
+        conflicts = checkpoint.conflicts();
+        failed = checkpoint.failed();
+        runStartNanos = System.nanoTime();
+        runStartOffset = offset;
+        runStartProcessed = processed;
+        state = State.RUNNING;
+    }
+
+    /**
+     * Records a committed chunk and returns the checkpoint to persist.
+     * Malformed records of the chunk count as processed and failed.
+     */
+    UserImportCheckpoint commit(BulkResult result, int malformed, long newOffset) {
+        offset = newOffset;
+        processed += result.items().size() + malformed;
+        succeeded += result.succeeded();
+        conflicts += result.conflicts();
+        failed += result.failed() + malformed;
+        return new UserImportCheckpoint(offset, processed, succeeded, conflicts, failed);
+    }
+
+    void finish(State finalState, String failure) {
+        error = failure;
+        state = finalState;
+    }
+
+    void cancel() {
+        cancelRequested = true;
+    }
+
+    boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    ImportStatus toStatus() {
+        double elapsedSeconds = runStartNanos == 0 ? 0 : (System.nanoTime() - runStartNanos) / 1e9;
+        double recordsPerSecond = elapsedSeconds > 0 ? (processed - runStartProcessed) / elapsedSeconds : 0;
+        double bytesPerSecond = elapsedSeconds > 0 ? (offset - runStartOffset) / elapsedSeconds : 0;
+        Long etaSeconds = state == State.RUNNING && bytesPerSecond > 0
+                ? Math.round((totalBytes - offset) / bytesPerSecond)
+                : null;
+        return new ImportStatus(
+                id,
+                file.getFileName().toString(),
+                state.name(),
+                processed,
+                succeeded,
+                conflicts,
+                failed,
+                offset,
+                totalBytes,
+                Math.round(recordsPerSecond * 10) / 10.0,
+                etaSeconds,
+                startedAt,
+                error);
+    }
+}
@@ -0,0 +1,258 @@
+package com.ibetar.keycloak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.entity.BulkItemStatus;
+import com.ibetar.keycloak.entity.BulkResult;
+import com.ibetar.keycloak.entity.ImportFormat;
+import com.ibetar.keycloak.entity.ImportRequest;
+import com.ibetar.keycloak.entity.ImportStatus;
+import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.exception.BadRequestException;
+import com.ibetar.keycloak.exception.DuplicateResourceException;
+import com.ibetar.keycloak.exception.InternalCreationException;
+import com.ibetar.keycloak.exception.ResourceNotFoundException;
+import com.ibetar.keycloak.exception.UpstreamUnavailableException;
+import com.ibetar.keycloak.utils.UserRecordReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Service class for importing users from CSV or NDJSON files in the import directory.
+ * Records are streamed from disk in chunks of {@code keycloak.imports.chunk-size} and created
+ * through {@link KeyCloakDao#createUsers}; the next chunk is only read once the previous one
+ * has been committed, so memory use is bounded by the chunk size. After each chunk the byte
+ * offset is checkpointed next to the file, and starting an import of the same file again
+ * resumes from that offset. A chunk during which Keycloak was unavailable is not committed: the
+ * job fails and a resume replays the whole chunk, its already created users being reported as conflicts.
+ * Malformed records are logged with their byte offset, counted as failed and skipped.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String UPLOAD_SUFFIX = ".upload";
+    private final KeyCloakDao keyCloakDao;
+    private final KeyCloakProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Executor importExecutor;
+    private final Map<String, UserImportJob> jobs = new ConcurrentHashMap<>();
+
+    public UserImportService(KeyCloakDao keyCloakDao,
+                             KeyCloakProperties properties,
+                             ObjectMapper objectMapper,
+                             @Qualifier("keycloakImportExecutor") Executor importExecutor) {
+        this.keyCloakDao = keyCloakDao;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.importExecutor = importExecutor;
+    }
+
+    /**
+     * Starts, or resumes from its checkpoint, the import of a file in the import directory.
+     *
+     * @param request The ImportRequest naming the file and its format.
+     * @return The ImportStatus of the new job.
+     */
+    public ImportStatus startImport(ImportRequest request) {
+        if (request.file() == null || request.format() == null) {
+            throw new BadRequestException("Import requires a file and a format");
+        }
+        Path file = resolve(request.file());
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Import file %s not found".formatted(request.file()));
+        }
+        return submit(file, request.format(), request.concurrency());
+    }
+
+    /**
+     * Stores an uploaded file in the import directory and starts importing it.
+     *
+     * @param fileName    The name under which the upload is stored.
+     * @param format      The format of the upload.
+     * @param concurrency The number of users created in parallel, zero for the default.
+     * @param content     The uploaded content, copied to disk without buffering it in memory.
+     * @return The ImportStatus of the new job.
+     */
+    public ImportStatus uploadAndImport(String fileName, ImportFormat format, int concurrency, InputStream content) {
+        Path file = resolve(fileName);
+        Path upload = null;
+        try {
+            // Streamed to a file of its own, only moved over the target once no job reads it
+            Files.createDirectories(file.getParent());
+            upload = Files.createTempFile(file.getParent(), ".upload-", UPLOAD_SUFFIX);
+            Files.copy(content, upload, StandardCopyOption.REPLACE_EXISTING);
+            return replaceAndSubmit(upload, file, format, concurrency);
+        } catch (IOException e) {
+            throw new InternalCreationException("Could not store upload %s: %s".formatted(fileName, e.getMessage()));
+        } finally {
+            deleteQuietly(upload);
+        }
+    }
+
+    /**
+     * Retrieves the progress of an import job.
+     *
+     * @param id The id of the job.
+     * @return The ImportStatus of the job.
+     */
+    public ImportStatus findImport(String id) {
+        return getJob(id).toStatus();
+    }
+
+    /**
+     * Retrieves the progress of every import job started since the application started.
+     *
+     * @return List of ImportStatus objects, most recent first.
+     */
+    public List<ImportStatus> findAllImports() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(UserImportJob::getStartedAt).reversed())
+                .map(UserImportJob::toStatus)
+                .toList();
+    }
+
+    /**
+     * Requests cancellation of an import job. The job stops after its current chunk
+     * and keeps its checkpoint, so it can be resumed later.
+     *
+     * @param id The id of the job.
+     * @return The ImportStatus of the job.
+     */
+    public ImportStatus cancelImport(String id) {
+        UserImportJob job = getJob(id);
+        job.cancel();
+        return job.toStatus();
+    }
+
+    private synchronized ImportStatus replaceAndSubmit(Path upload, Path file, ImportFormat format, int concurrency)
+            throws IOException {
+        ensureNotRunning(file);
+        Files.move(upload, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(checkpointOf(file));
+        return submit(file, format, concurrency);
+    }
+
+    private synchronized ImportStatus submit(Path file, ImportFormat format, int concurrency) {
+        ensureNotRunning(file);
+        long totalBytes;
+        try {
+            totalBytes = Files.size(file);
+        } catch (IOException e) {
+            throw new InternalCreationException("Could not read import file: " + e.getMessage());
+        }
+        UserImportJob job = new UserImportJob(file, checkpointOf(file), format, concurrency, totalBytes);
+        jobs.put(job.getId(), job);
+        importExecutor.execute(() -> run(job));
+        log.info("Import {} of {} submitted", job.getId(), file.getFileName());
+        return job.toStatus();
+    }
+
+    private void run(UserImportJob job) {
+        int chunkSize = properties.getImports().getChunkSize();
+        try {
+            UserImportCheckpoint checkpoint = UserImportCheckpoint.read(job.getCheckpointFile());
+            job.start(checkpoint);
+            if (checkpoint.offset() > 0) {
+                log.info("Resuming import {} at byte {}", job.getId(), checkpoint.offset());
+            }
+            try (UserRecordReader reader = new UserRecordReader(
+                    job.getFile(), job.getFormat(), checkpoint.offset(), objectMapper)) {
+                List<UserDTO> chunk = new ArrayList<>(chunkSize);
+                int malformed = 0;
+                while (!job.isCancelRequested()) {
+                    UserRecordReader.Entry entry = reader.next();
+                    if (entry != null && entry.isMalformed()) {
+                        malformed++;
+                        log.warn("Import {} skipped the record at byte {}: {}",
+                                job.getId(), entry.offset(), entry.error());
+                    } else if (entry != null) {
+                        chunk.add(entry.user());
+                    }
+                    int pending = chunk.size() + malformed;
+                    if (pending > 0 && (entry == null || pending == chunkSize)) {
+                        BulkResult result = chunk.isEmpty()
+                                ? BulkResult.of(List.of())
+                                : keyCloakDao.createUsers(chunk.stream(), job.getConcurrency());
+                        if (result.items().stream().anyMatch(item -> item.status() == BulkItemStatus.UNAVAILABLE)) {
+                            // The checkpoint stays at the start of the chunk, so a resume retries it
+                            throw new UpstreamUnavailableException(
+                                    "Keycloak unavailable, import stopped at byte %d".formatted(job.getOffset()));
+                        }
+                        job.commit(result, malformed, reader.getOffset()).write(job.getCheckpointFile());
+                        chunk.clear();
+                        malformed = 0;
+                    }
+                    if (entry == null) {
+                        break;
+                    }
+                }
+            }
+            if (job.isCancelRequested()) {
+                log.info("Import {} cancelled at byte {}", job.getId(), job.getOffset());
+                job.finish(UserImportJob.State.CANCELLED, null);
+            } else {
+                Files.deleteIfExists(job.getCheckpointFile());
+                log.info("Import {} completed: {} records", job.getId(), job.getProcessed());
+                job.finish(UserImportJob.State.COMPLETED, null);
+            }
+        } catch (Exception e) {
+            log.error("Import {} failed at byte {}: {}", job.getId(), job.getOffset(), e.getMessage());
+            job.finish(UserImportJob.State.FAILED, e.getMessage());
+        }
+    }
+
+    private void ensureNotRunning(Path file) {
+        boolean running = jobs.values().stream()
+                .anyMatch(job -> job.isActive() && job.getFile().equals(file));
+        if (running) {
+            throw new DuplicateResourceException("An import of %s is already running".formatted(file.getFileName()));
+        }
+    }
+
+    private static void deleteQuietly(Path upload) {
+        if (upload == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            log.warn("Could not delete upload {}: {}", upload, e.getMessage());
+        }
+    }
+
+    private UserImportJob getJob(String id) {
+        UserImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import %s not found".formatted(id));
+        }
+        return job;
+    }
+
+    private Path resolve(String fileName) {
+        Path directory = properties.getImports().getDirectory().toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)
+                || fileName.endsWith(CHECKPOINT_SUFFIX) || fileName.endsWith(UPLOAD_SUFFIX)) {
+            throw new BadRequestException("Invalid import file name: " + fileName);
+        }
+        return file;
+    }
+
+    private static Path checkpointOf(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ibetar.keycloak.utils;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to upstream latency (additive increase, multiplicative decrease).
+ * Every call faster than {@code latencyThreshold} raises the limit by {@code 1/limit}, so it grows by
+ * about one per round of calls; a slow or failed call multiplies it by {@code backoffRatio}.
+ * The limit stays between {@code minLimit} and {@code maxLimit}. A call waits at most
+ * {@code maxWait} for the number of calls in flight to drop below the limit.
+ */
+public class AdaptiveLimiter {
+    @Getter
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long maxWaitNanos;
+    private final LongAdder rejected = new LongAdder();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                           Duration latencyThreshold, double backoffRatio, Duration maxWait) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Waits for a free slot under the current limit.
+     *
+     * @return false if no slot became free within {@code maxWait}.
+     */
+    public synchronized boolean tryAcquire() {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                rejected.increment();
+                return false;
+            }
+            try {
+                wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                return false;
+            }
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a slot after a call that reached the upstream and got an answer.
+     *
+     * @param latencyNanos The duration of the call.
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlight * 2 >= limit) {
+            // Only grow while the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        release();
+    }
+
+    /**
+     * Releases a slot after a call that timed out or failed upstream.
+     */
+    public synchronized void onDropped() {
+        decrease();
+        release();
+    }
+
+    /**
+     * Releases a slot without adjusting the limit.
+     */
+    public synchronized void onIgnored() {
+        release();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+}
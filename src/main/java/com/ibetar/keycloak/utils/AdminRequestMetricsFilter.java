@@ -0,0 +1,96 @@
+package com.ibetar.keycloak.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+
+import java.io.InterruptedIOException;
+import java.util.regex.Pattern;
+
+/**
+ * Times every HTTP call made by the Keycloak admin client, including token requests.
+ * Calls are recorded in the {@code keycloak.admin.requests} timer, tagged with the method,
+ * the request path with ids replaced by {@code {id}}, the status code and the outcome. Calls that end
+ * without a response are reported by {@link TimeoutAwareHttpEngine} with status {@code NONE} and the
+ * outcome {@code TIMEOUT}, {@code POOL_TIMEOUT} (no free pooled connection) or {@code IO_ERROR}.
+ */
+class AdminRequestMetricsFilter implements ClientRequestFilter, ClientResponseFilter {
+    static final String METRIC_NAME = "keycloak.admin.requests";
+    private static final String START_PROPERTY = AdminRequestMetricsFilter.class.getName() + ".start";
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "/[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}(?=/|$)");
+    private final MeterRegistry registry;
+
+    AdminRequestMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        request.setProperty(START_PROPERTY, Timer.start(registry));
+    }
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) {
+        if (request.getProperty(START_PROPERTY) instanceof Timer.Sample sample) {
+            int status = response.getStatus();
+            stop(sample, request.getMethod(), request.getUri().getPath(), Integer.toString(status), outcome(status));
+        }
+    }
+
+    /**
+     * Records a call that failed before a response was received.
+     *
+     * @param request The invocation, carrying the sample started by the request filter.
+     * @param cause   Why the call failed.
+     */
+    void failed(ClientInvocation request, Throwable cause) {
+        if (request.getMutableProperties().remove(START_PROPERTY) instanceof Timer.Sample sample) {
+            stop(sample, request.getMethod(), request.getUri().getPath(), "NONE", failureOutcome(cause));
+        }
+    }
+
+    private void stop(Timer.Sample sample, String method, String path, String status, String outcome) {
+        sample.stop(Timer.builder(METRIC_NAME)
+                .description("HTTP calls made by the Keycloak admin client")
+                .tag("method", method)
+                .tag("uri", template(path))
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    static String template(String path) {
+        return ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+
+    static String failureOutcome(Throwable cause) {
+        String outcome = "IO_ERROR";
+        for (Throwable e = cause; e != null; e = e.getCause()) {
+            // ConnectionPoolTimeoutException is an InterruptedIOException too, it has to be checked first
+            if (e instanceof ConnectionPoolTimeoutException) {
+                return "POOL_TIMEOUT";
+            }
+            if (e instanceof InterruptedIOException) {
+                outcome = "TIMEOUT";
+            }
+        }
+        return outcome;
+    }
+
+    static String outcome(int status) {
+        if (status < 300) {
+            return "SUCCESS";
+        } else if (status < 400) {
+            return "REDIRECTION";
+        } else if (status < 500) {
+            return "CLIENT_ERROR";
+        }
+        return "SERVER_ERROR";
+    }
+}
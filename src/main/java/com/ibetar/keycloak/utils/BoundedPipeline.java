@@ -0,0 +1,74 @@
+package com.ibetar.keycloak.utils;
+
+import com.ibetar.keycloak.exception.ExternalServiceException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Runs a task for every item of a stream with a bounded number of items in flight.
+ * Items are pulled from the stream only when a slot is free, so large or lazily produced
+ * inputs are never buffered ahead of the workers. Results are returned in input order.
+ */
+public final class BoundedPipeline {
+
+    private BoundedPipeline() {
+    }
+
+    /**
+     * Applies the task to every item with at most {@code concurrency} items running at once.
+     *
+     * @param items       The items to process.
+     * @param concurrency The maximum number of items processed concurrently.
+     * @param executor    The executor running the tasks.
+     * @param task        The task applied to each item.
+     * @param onError     Maps an item and the failure of its task to a result.
+     * @return The results in the order of the input items.
+     */
+    public static <T, R> List<R> run(Stream<T> items,
+                                     int concurrency,
+                                     Executor executor,
+                                     Function<T, R> task,
+                                     BiFunction<T, Throwable, R> onError) {
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        List<CompletableFuture<R>> futures = new ArrayList<>();
+        Iterator<T> iterator = items.iterator();
+        try {
+            while (iterator.hasNext()) {
+                T item = iterator.next();
+                permits.acquire();
+                CompletableFuture<R> future;
+                try {
+                    future = CompletableFuture.supplyAsync(() -> task.apply(item), executor)
+                            .exceptionally(e -> onError.apply(item, unwrap(e)));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                future.whenComplete((result, e) -> permits.release());
+                futures.add(future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new ExternalServiceException("Bulk operation interrupted");
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ibetar.keycloak.utils;
+
+import com.ibetar.keycloak.exception.BulkheadFullException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent calls of one kind.
+ * A call waits at most {@code maxWait} for a free permit and is rejected with a
+ * {@link BulkheadFullException} afterwards, so one saturated kind of call cannot
+ * starve the others.
+ */
+public class Bulkhead implements MeterBinder {
+    @Getter
+    private final String name;
+    @Getter
+    private final int limit;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int limit, Duration maxWait) {
+        this.name = name;
+        this.limit = limit;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(limit, true);
+    }
+
+    /**
+     * Runs the supplier once a permit is available.
+     *
+     * @param supplier The call to run.
+     * @return The result of the call.
+     * @throws BulkheadFullException If no permit became available in time.
+     */
+    public <T> T call(Supplier<T> supplier) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new BulkheadFullException("Too many concurrent %s calls to Keycloak, try again later".formatted(name));
+        }
+        try {
+            return supplier.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getActiveCount() {
+        return limit - permits.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("keycloak.bulkhead.active", this, Bulkhead::getActiveCount)
+                .description("Calls holding a bulkhead permit")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("keycloak.bulkhead.limit", this, Bulkhead::getLimit)
+                .description("Permits of the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+        FunctionCounter.builder("keycloak.bulkhead.rejected", this, Bulkhead::getRejectedCount)
+                .description("Calls rejected because no permit became available in time")
+                .tag("bulkhead", name)
+                .register(registry);
+    }
+}
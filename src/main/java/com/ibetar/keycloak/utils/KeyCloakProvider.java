@@ -1,68 +1,207 @@
 package com.ibetar.keycloak.utils;
 
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.AccessTokenResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
 
 /**
- * Utility class for providing access to Keycloak resources.
- * This class encapsulates the configuration details for connecting to the Keycloak server,
- * allowing other components to easily obtain RealmResource and UsersResource instances.
+ * Provides access to Keycloak resources through a single, shared admin client.
+ * The client owns one pooled RESTEasy connection manager and caches the admin access token,
+ * refreshing it in the background before it expires. Connection details are taken from the
+ * {@code keycloak.*} properties, see {@link KeyCloakProperties}.
+ * <p>
+ * Every admin call is timed in {@code keycloak.admin.requests}; the connection pool and the
+ * background token refreshes are exposed as {@code keycloak.admin.pool.*} and
+ * {@code keycloak.admin.token.*} meters.
  */
+@Slf4j
 @Service
 public class KeyCloakProvider {
-    /**
-     * Configuration constants for connecting to the Keycloak server.
-     * <p>
-     * SERVER_URL: The URL of the Keycloak server, typically "<a href="http://localhost:8080">...</a>".
-     * REALM_NAME: The name of the Keycloak realm, e.g. "spring-boot-realm-dev".
-     * REALM_MASTER: The name of the master realm in Keycloak, usually "master".
-     * ADMIN_CLI: The client ID for the Keycloak admin console, often "admin-cli".
-     * USER_CONSOLE: The username of the admin user for the Keycloak admin console.
-     * USER_PASSWORD: The password of the admin user for the Keycloak admin console.
-     * CLIENT_SECRET: The client secret used for authentication with Keycloak, use your KeyCloak CLI for details.
-     */
+    private final KeyCloakProperties properties;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final Keycloak keycloak;
+    private final ScheduledExecutorService tokenRefresher;
+    private final LongAdder tokenRenewals = new LongAdder();
+    private final LongAdder tokenRefreshFailures = new LongAdder();
+    private volatile String currentToken;
+    private volatile long tokenExpiresAtMillis;
 
-    private static final String SERVER_URL = "http://localhost:8080";
-    private static final String REALM_NAME = "spring-boot-realm-dev";
-    private static final String REALM_MASTER = "master";
-    private static final String ADMIN_CLI = "admin-cli";
-    private static final String USER_CONSOLE = "admin";
-    private static final String USER_PASSWORD = "admin";
-    private static final String CLIENT_SECRET = "dQtK0TXRlyDKkD0LakkGvB6FGJz0lvd4";
+    public KeyCloakProvider(KeyCloakProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.connectionManager = buildConnectionManager(properties.getPool());
+        this.keycloak = buildKeycloak(properties, connectionManager, registry);
+        this.tokenRefresher = scheduleTokenRefresh(properties.getToken());
+        bindMetrics(registry);
+    }
 
     /**
      * Retrieves the RealmResource associated with the configured Keycloak server.
      *
      * @return The RealmResource instance for the specified realm.
      */
-    public static RealmResource getRealmResource() {
-        Keycloak keycloak = KeycloakBuilder.builder()
-                .serverUrl(SERVER_URL)
-                .realm(REALM_MASTER)
-                .clientId(ADMIN_CLI)
-                .username(USER_CONSOLE)
-                .password(USER_PASSWORD)
-                .clientSecret(CLIENT_SECRET)
-                .resteasyClient(new ResteasyClientBuilderImpl()
-                        .connectionPoolSize(10)
-                        .build())
-                .build();
-        return keycloak.realm(REALM_NAME);
+    public RealmResource getRealmResource() {
+        return getRealmResource(properties.getRealmName());
+    }
+
+    /**
+     * Retrieves the RealmResource of the given realm through the shared admin client.
+     *
+     * @param realmName The name of the realm.
+     * @return The RealmResource instance for the given realm.
+     */
+    public RealmResource getRealmResource(String realmName) {
+        return keycloak.realm(realmName);
     }
 
+    /**
+     * Retrieves the name of the realm managed by this service.
+     *
+     * @return The configured realm name.
+     */
+    public String getRealmName() {
+        return properties.getRealmName();
+    }
 
     /**
      * Retrieves the UsersResource associated with the configured Keycloak realm.
      *
      * @return The UsersResource instance for the specified realm.
      */
-    public static UsersResource getUserResource() {
-        RealmResource realm = getRealmResource();
-        return realm.users();
+    public UsersResource getUserResource() {
+        return getRealmResource().users();
     }
 
+    /**
+     * Stops the background token refresh and releases the pooled connections.
+     */
+    @PreDestroy
+    public void close() {
+        if (tokenRefresher != null) {
+            tokenRefresher.shutdownNow();
+        }
+        keycloak.close();
+        log.info("Keycloak admin client closed");
+    }
+
+    private static PoolingHttpClientConnectionManager buildConnectionManager(KeyCloakProperties.Pool pool) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                pool.getConnectionTtl().toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(pool.getSize());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        return connectionManager;
+    }
+
+    private static Keycloak buildKeycloak(KeyCloakProperties properties,
+                                          PoolingHttpClientConnectionManager connectionManager,
+                                          MeterRegistry registry) {
+        KeyCloakProperties.Pool pool = properties.getPool();
+        // The HTTP client is built here rather than by RESTEasy so the pool can be observed
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) pool.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) pool.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) pool.getCheckoutTimeout().toMillis())
+                .build();
+        AdminRequestMetricsFilter metrics = new AdminRequestMetricsFilter(registry);
+        TimeoutAwareHttpEngine engine = new TimeoutAwareHttpEngine(HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build(), metrics);
+        Keycloak keycloak = KeycloakBuilder.builder()
+                .serverUrl(properties.getServerUrl())
+                .realm(properties.getRealmMaster())
+                .clientId(properties.getAdminCli())
+                .username(properties.getUserConsole())
+                .password(properties.getUserPassword())
+                .clientSecret(StringUtils.hasText(properties.getClientSecret()) ? properties.getClientSecret() : null)
+                .resteasyClient(new ResteasyClientBuilderImpl()
+                        .httpEngine(engine)
+                        .register(metrics)
+                        .build())
+                .build();
+        keycloak.tokenManager().setMinTokenValidity(properties.getToken().getMinValidity().toSeconds());
+        return keycloak;
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        poolGauge(registry, "keycloak.admin.pool.leased", "Connections in use", PoolStats::getLeased);
+        poolGauge(registry, "keycloak.admin.pool.available", "Idle connections", PoolStats::getAvailable);
+        poolGauge(registry, "keycloak.admin.pool.pending", "Requests waiting for a connection", PoolStats::getPending);
+        poolGauge(registry, "keycloak.admin.pool.max", "Maximum number of connections", PoolStats::getMax);
+        FunctionCounter.builder("keycloak.admin.token.refreshes", tokenRenewals, LongAdder::sum)
+                .description("Background refreshes of the admin token")
+                .tag("outcome", "RENEWED")
+                .register(registry);
+        FunctionCounter.builder("keycloak.admin.token.refreshes", tokenRefreshFailures, LongAdder::sum)
+                .description("Background refreshes of the admin token")
+                .tag("outcome", "FAILED")
+                .register(registry);
+        Gauge.builder("keycloak.admin.token.remaining", this, KeyCloakProvider::tokenRemainingSeconds)
+                .description("Seconds until the cached admin token expires, NaN before the first refresh")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private double tokenRemainingSeconds() {
+        long expiresAt = tokenExpiresAtMillis;
+        return expiresAt == 0 ? Double.NaN : Math.max(0, expiresAt - System.currentTimeMillis()) / 1000.0;
+    }
+
+    private void poolGauge(MeterRegistry registry, String name, String description,
+                           ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(name, connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .description(description)
+                .baseUnit("connections")
+                .register(registry);
+    }
+
+    private ScheduledExecutorService scheduleTokenRefresh(KeyCloakProperties.Token token) {
+        long interval = token.getRefreshInterval().toMillis();
+        if (interval <= 0) {
+            return null;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keycloak-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refreshToken, interval, interval, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private void refreshToken() {
+        try {
+            // Refreshes only when the cached token is within its minimum validity window
+            AccessTokenResponse token = keycloak.tokenManager().getAccessToken();
+            if (!Objects.equals(token.getToken(), currentToken)) {
+                currentToken = token.getToken();
+                tokenExpiresAtMillis = System.currentTimeMillis() + token.getExpiresIn() * 1000;
+                tokenRenewals.increment();
+            }
+        } catch (Exception e) {
+            tokenRefreshFailures.increment();
+            log.warn("Could not refresh Keycloak admin token: {}", e.getMessage());
+        }
+    }
 }
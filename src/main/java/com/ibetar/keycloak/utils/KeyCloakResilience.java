@@ -0,0 +1,240 @@
+package com.ibetar.keycloak.utils;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.exception.UpstreamTimeoutException;
+import com.ibetar.keycloak.exception.UpstreamUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer around the Keycloak admin calls.
+ * Every call passes an adaptive concurrency limit and a circuit breaker and runs with the read
+ * timeout of its operation, see {@link KeyCloakProperties.Resilience}. Reads and writes have a limit and
+ * a breaker each, built from the same settings, so slow bulk writes cannot trip reads. Reads are
+ * idempotent and retried with jittered backoff; writes are never retried. Timeouts, connection failures
+ * and server errors count as failures, client errors such as 404 or 409 do not. A call that timed out
+ * waiting for a pooled connection never reached Keycloak: it is rejected as local saturation and
+ * recorded by neither the limiter nor the breaker.
+ */
+@Slf4j
+@Component
+public class KeyCloakResilience {
+    private final KeyCloakProperties.Resilience settings;
+    private final Lane reads;
+    private final Lane writes;
+    private final MeterRegistry registry;
+
+    public KeyCloakResilience(KeyCloakProperties properties, MeterRegistry registry) {
+        this.settings = properties.getResilience();
+        this.reads = lane("read");
+        this.writes = lane("write");
+        this.registry = registry;
+        reads.bindTo(registry);
+        writes.bindTo(registry);
+    }
+
+    /**
+     * Runs an idempotent read, retrying timeouts, connection failures and server errors.
+     *
+     * @param operation The operation name, e.g. "users.search".
+     * @param call      The call to Keycloak.
+     * @return The result of the call.
+     */
+    public <T> T read(String operation, Supplier<T> call) {
+        KeyCloakProperties.Retry retry = settings.getRetry();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return guard(reads, operation, call);
+            } catch (RuntimeException e) {
+                if (attempt >= retry.getMaxAttempts() || !isRetryable(e)) {
+                    throw e;
+                }
+                registry.counter("keycloak.resilience.retries", "operation", operation).increment();
+                log.debug("Retrying {} after attempt {} failed: {}", operation, attempt, e.getMessage());
+                backoff(retry, attempt);
+            }
+        }
+    }
+
+    /**
+     * Runs a write once.
+     *
+     * @param operation The operation name, e.g. "users.create".
+     * @param call      The call to Keycloak.
+     * @return The result of the call.
+     */
+    public <T> T write(String operation, Supplier<T> call) {
+        return guard(writes, operation, call);
+    }
+
+    /**
+     * Runs a write without a result once.
+     *
+     * @param operation The operation name, e.g. "users.delete".
+     * @param call      The call to Keycloak.
+     */
+    public void write(String operation, Runnable call) {
+        guard(writes, operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public CircuitBreaker.State getReadCircuitState() {
+        return reads.breaker().getState();
+    }
+
+    public CircuitBreaker.State getWriteCircuitState() {
+        return writes.breaker().getState();
+    }
+
+    private <T> T guard(Lane lane, String operation, Supplier<T> call) {
+        if (!settings.isEnabled()) {
+            return call.get();
+        }
+        CircuitBreaker circuitBreaker = lane.breaker();
+        AdaptiveLimiter limiter = lane.limiter();
+        if (!limiter.tryAcquire()) {
+            reject(lane, "limit");
+            throw new UpstreamUnavailableException("Too many concurrent calls to Keycloak, try again later");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            limiter.onIgnored();
+            reject(lane, "circuit_open");
+            throw new UpstreamUnavailableException("Keycloak is unavailable, try again later");
+        }
+        long start = System.nanoTime();
+        try {
+            T result = TimeoutAwareHttpEngine.withTimeout(timeoutOf(operation), call);
+            if (result instanceof Response response && response.getStatus() >= 500) {
+                lane.failed();
+            } else {
+                lane.succeeded(start);
+            }
+            return result;
+        } catch (WebApplicationException e) {
+            if (e.getResponse().getStatus() >= 500) {
+                lane.failed();
+            } else {
+                lane.succeeded(start);
+            }
+            throw e;
+        } catch (ProcessingException e) {
+            if (hasCause(e, ConnectionPoolTimeoutException.class)) {
+                // The local pool is saturated, Keycloak itself may be healthy
+                limiter.onIgnored();
+                circuitBreaker.onIgnored();
+                reject(lane, "pool");
+                throw new UpstreamUnavailableException("No connection to Keycloak available, try again later");
+            }
+            lane.failed();
+            if (hasCause(e, SocketTimeoutException.class)) {
+                registry.counter("keycloak.resilience.timeouts", "operation", operation).increment();
+                throw new UpstreamTimeoutException("Keycloak did not answer %s in time".formatted(operation), e);
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // Failed on this side, says nothing about Keycloak
+            limiter.onIgnored();
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+    }
+
+    private Lane lane(String kind) {
+        KeyCloakProperties.Breaker breaker = settings.getCircuitBreaker();
+        KeyCloakProperties.Limiter limit = settings.getLimiter();
+        return new Lane(kind,
+                new CircuitBreaker("keycloak-" + kind, breaker.getFailureRateThreshold(),
+                        breaker.getMinimumCalls(), breaker.getWindowSize(), breaker.getOpenDuration(),
+                        breaker.getHalfOpenCalls()),
+                new AdaptiveLimiter("keycloak-" + kind, limit.getInitialLimit(), limit.getMinLimit(),
+                        limit.getMaxLimit(), limit.getLatencyThreshold(), limit.getBackoffRatio(), limit.getMaxWait()));
+    }
+
+    private Duration timeoutOf(String operation) {
+        return settings.getTimeouts().getOrDefault(operation, settings.getDefaultTimeout());
+    }
+
+    private void reject(Lane lane, String reason) {
+        registry.counter("keycloak.resilience.rejections", "kind", lane.kind(), "reason", reason).increment();
+    }
+
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof UpstreamTimeoutException || e instanceof ProcessingException) {
+            return true;
+        }
+        if (e instanceof WebApplicationException webException) {
+            int status = webException.getResponse().getStatus();
+            return status >= 500 || status == 429;
+        }
+        return false;
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void backoff(KeyCloakProperties.Retry retry, int attempt) {
+        long ceiling = Math.min(retry.getMaxBackoff().toMillis(),
+                retry.getInitialBackoff().toMillis() << Math.min(attempt - 1, 20));
+        try {
+            // Full jitter spreads the retries of concurrent callers
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * The limiter and breaker of one kind of call, reads or writes.
+     */
+    private record Lane(String kind, CircuitBreaker breaker, AdaptiveLimiter limiter) {
+        void succeeded(long start) {
+            limiter.onSuccess(System.nanoTime() - start);
+            breaker.onSuccess();
+        }
+
+        void failed() {
+            limiter.onDropped();
+            breaker.onFailure();
+        }
+
+        void bindTo(MeterRegistry registry) {
+            Gauge.builder("keycloak.resilience.circuit.state", breaker, circuit -> circuit.getState().ordinal())
+                    .description("State of the circuit breaker: 0 closed, 1 open, 2 half-open")
+                    .tag("kind", kind)
+                    .register(registry);
+            FunctionCounter.builder("keycloak.resilience.circuit.opened", breaker, CircuitBreaker::getOpenedCount)
+                    .description("Times the circuit breaker opened")
+                    .tag("kind", kind)
+                    .register(registry);
+            Gauge.builder("keycloak.resilience.limit", limiter, AdaptiveLimiter::getLimit)
+                    .description("Current adaptive limit of admin calls in flight")
+                    .tag("kind", kind)
+                    .register(registry);
+            Gauge.builder("keycloak.resilience.inflight", limiter, AdaptiveLimiter::getInFlight)
+                    .description("Admin calls in flight")
+                    .tag("kind", kind)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.ibetar.keycloak.utils;
+
+import com.ibetar.keycloak.config.HttpClientProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Owns the pooled HTTP client shared by outbound calls.
+ * One connection pool serves every target; its size, connect, read and connection-acquire timeouts
+ * and keep-alive can be set per route through {@link HttpClientProperties}. Expired and idle
+ * connections are evicted in the background. Outbound integrations get a request factory over the
+ * shared client from {@link #requestFactory()} rather than opening connections of their own.
+ * <p>
+ * The pool is exposed as the standard {@code httpcomponents.httpclient.pool.*} meters, plus
+ * per-route gauges for every configured route.
+ */
+@Slf4j
+public class PooledHttpClientFactory implements MeterBinder, AutoCloseable {
+    private static final String CLIENT_NAME = "outbound";
+    private final HttpClientProperties.Route defaults;
+    private final Map<HttpHost, HttpClientProperties.Route> routes = new HashMap<>();
+    private final Map<HttpHost, String> routeNames = new HashMap<>();
+    @Getter
+    private final PoolingHttpClientConnectionManager connectionManager;
+    @Getter
+    private final CloseableHttpClient httpClient;
+
+    public PooledHttpClientFactory(HttpClientProperties properties) {
+        this.defaults = properties.getDefaults();
+        properties.getRoutes().forEach((name, route) -> {
+            HttpHost host = normalize(name);
+            routes.put(host, route.orElse(defaults));
+            routeNames.put(host, name);
+        });
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxTotal())
+                .setMaxConnPerRoute(defaults.getMaxConnections())
+                .setConnectionConfigResolver(route -> connectionConfig(settings(route.getTargetHost()), properties))
+                .build();
+        routes.forEach((host, route) -> connectionManager.setMaxPerRoute(
+                new HttpRoute(host, null, URIScheme.HTTPS.same(host.getSchemeName())), route.getMaxConnections()));
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig(defaults))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getMaxIdleTime()))
+                .build();
+    }
+
+    /**
+     * Creates a request factory over the shared client, applying the timeouts of each request's route.
+     * Closing the factory does not close the shared client.
+     *
+     * @return A ClientHttpRequestFactory backed by the pool.
+     */
+    public ClientHttpRequestFactory requestFactory() {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            public void destroy() {
+                // The client is owned by the PooledHttpClientFactory
+            }
+        };
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfig(settings(uri)));
+            return context;
+        });
+        return factory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, CLIENT_NAME).bindTo(registry);
+        routes.keySet().forEach(host -> {
+            HttpRoute route = new HttpRoute(host, null, URIScheme.HTTPS.same(host.getSchemeName()));
+            routeGauge(registry, route, host, "leased", PoolStats::getLeased);
+            routeGauge(registry, route, host, "available", PoolStats::getAvailable);
+            routeGauge(registry, route, host, "pending", PoolStats::getPending);
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        log.info("Outbound HTTP client closed");
+    }
+
+    private HttpClientProperties.Route settings(URI uri) {
+        return uri.getHost() == null ? defaults : settings(normalize(uri.toString()));
+    }
+
+    private HttpClientProperties.Route settings(HttpHost host) {
+        return routes.getOrDefault(host, defaults);
+    }
+
+    private void routeGauge(MeterRegistry registry, HttpRoute route, HttpHost host, String state,
+                            ToIntFunction<PoolStats> value) {
+        Gauge.builder("httpcomponents.httpclient.pool.route.connections", connectionManager,
+                        manager -> value.applyAsInt(manager.getStats(route)))
+                .description("Connections of a configured route by state")
+                .tags("httpclient", CLIENT_NAME, "route", routeNames.get(host), "state", state)
+                .register(registry);
+    }
+
+    private static ConnectionConfig connectionConfig(HttpClientProperties.Route route, HttpClientProperties properties) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(timeout(route.getConnectTimeout()))
+                .setSocketTimeout(timeout(route.getReadTimeout()))
+                .setTimeToLive(TimeValue.of(properties.getTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                .build();
+    }
+
+    private static RequestConfig requestConfig(HttpClientProperties.Route route) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout(route.getConnectionRequestTimeout()))
+                .setResponseTimeout(timeout(route.getReadTimeout()))
+                .setConnectionKeepAlive(TimeValue.of(route.getKeepAlive()))
+                .build();
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.of(duration);
+    }
+
+    /**
+     * Reduces a URL to the scheme, host and port identifying its route, with the scheme's default port.
+     */
+    private static HttpHost normalize(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme() == null ? URIScheme.HTTP.id : uri.getScheme().toLowerCase();
+            int port = uri.getPort() >= 0 ? uri.getPort() : URIScheme.HTTPS.same(scheme) ? 443 : 80;
+            return new HttpHost(scheme, uri.getHost(), port);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid route " + url, e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.ibetar.keycloak.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls into one.
+ * The first caller for a key runs the call; callers arriving while it is in flight wait for
+ * and share its result or failure. Nothing is kept once the call completes, so results are
+ * never staler than an uncoalesced call would be.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+    @Getter
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs the call, or joins the identical call already in flight.
+     *
+     * @param key  Identifies identical calls.
+     * @param call The call to run.
+     * @return The result of the call.
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            merged.increment();
+            return join(existing);
+        }
+        executed.increment();
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    public long getMergedCount() {
+        return merged.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("keycloak.singleflight.calls", this, SingleFlight::getExecutedCount)
+                .description("Reads sent to Keycloak or merged into an identical read in flight")
+                .tags("flight", name, "result", "executed")
+                .register(registry);
+        FunctionCounter.builder("keycloak.singleflight.calls", this, SingleFlight::getMergedCount)
+                .description("Reads sent to Keycloak or merged into an identical read in flight")
+                .tags("flight", name, "result", "merged")
+                .register(registry);
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ibetar.keycloak.utils;
+
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.Response;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * RESTEasy engine that applies a per-call read timeout.
+ * RESTEasy sets the request configuration of every request, so the timeout chosen for the current
+ * operation is applied on top of it here rather than through the client defaults. Calls that end
+ * without a response never reach the response filters, so they are reported to the metrics filter here.
+ */
+class TimeoutAwareHttpEngine extends ApacheHttpClient43Engine {
+    private static final ThreadLocal<Duration> TIMEOUT = new ThreadLocal<>();
+    private final AdminRequestMetricsFilter metrics;
+
+    TimeoutAwareHttpEngine(HttpClient httpClient, AdminRequestMetricsFilter metrics) {
+        super(httpClient, true);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs the call with the given read timeout for every request it makes on the calling thread.
+     *
+     * @param timeout The read timeout.
+     * @param call    The call to run.
+     * @return The result of the call.
+     */
+    static <T> T withTimeout(Duration timeout, Supplier<T> call) {
+        Duration previous = TIMEOUT.get();
+        TIMEOUT.set(timeout);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                TIMEOUT.remove();
+            } else {
+                TIMEOUT.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Response invoke(Invocation invocation) {
+        try {
+            return super.invoke(invocation);
+        } catch (ProcessingException e) {
+            if (invocation instanceof ClientInvocation request) {
+                metrics.failed(request, e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected void setRedirectRequired(ClientInvocation request, HttpRequestBase httpMethod) {
+        super.setRedirectRequired(request, httpMethod);
+        applyTimeout(httpMethod);
+    }
+
+    @Override
+    protected void setRedirectNotRequired(ClientInvocation request, HttpRequestBase httpMethod) {
+        super.setRedirectNotRequired(request, httpMethod);
+        applyTimeout(httpMethod);
+    }
+
+    private static void applyTimeout(HttpRequestBase httpMethod) {
+        Duration timeout = TIMEOUT.get();
+        if (timeout != null && httpMethod.getConfig() != null) {
+            httpMethod.setConfig(RequestConfig.copy(httpMethod.getConfig())
+                    .setSocketTimeout((int) timeout.toMillis())
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ibetar.keycloak.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.ibetar.keycloak.entity.UserSummary;
+import com.ibetar.keycloak.exception.BadRequestException;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Selects how users are rendered in responses.
+ * The full view returns the UserRepresentation unchanged, the compact view a {@link UserSummary},
+ * and a {@code fields=} projection only the requested fields. Projected users are written field by
+ * field straight to the JSON generator, without an intermediate map, and null fields are left out.
+ */
+public final class UserProjection {
+    public static final UserProjection FULL = new UserProjection(View.FULL, List.of());
+    public static final UserProjection COMPACT = new UserProjection(View.COMPACT, List.of());
+    private static final Map<String, Function<UserRepresentation, Object>> FIELDS = fields();
+    private static final Set<String> BRIEF_EXCLUDED = Set.of("attributes", "requiredActions", "realmRoles", "groups");
+
+    private enum View { FULL, COMPACT, FIELDS }
+
+    private final View view;
+    private final List<Map.Entry<String, Function<UserRepresentation, Object>>> selected;
+
+    private UserProjection(View view, List<Map.Entry<String, Function<UserRepresentation, Object>>> selected) {
+        this.view = view;
+        this.selected = selected;
+    }
+
+    /**
+     * Parses the view and fields request parameters; fields take precedence over the view.
+     *
+     * @param view   "full" or "compact", null for full.
+     * @param fields Comma-separated field names, e.g. "id,username,email", or null.
+     * @return The UserProjection to apply.
+     * @throws BadRequestException If the view or a field is unknown.
+     */
+    public static UserProjection of(String view, String fields) {
+        if (fields != null && !fields.isBlank()) {
+            List<Map.Entry<String, Function<UserRepresentation, Object>>> selected = new ArrayList<>();
+            for (String field : fields.split(",")) {
+                String name = field.trim();
+                Function<UserRepresentation, Object> accessor = FIELDS.get(name);
+                if (accessor == null) {
+                    throw new BadRequestException("Unknown field %s, expected one of %s".formatted(name, FIELDS.keySet()));
+                }
+                if (selected.stream().noneMatch(entry -> entry.getKey().equals(name))) {
+                    selected.add(Map.entry(name, accessor));
+                }
+            }
+            return new UserProjection(View.FIELDS, List.copyOf(selected));
+        }
+        if (view == null || view.equalsIgnoreCase("full")) {
+            return FULL;
+        }
+        if (view.equalsIgnoreCase("compact")) {
+            return COMPACT;
+        }
+        throw new BadRequestException("Unknown view %s, expected full or compact".formatted(view));
+    }
+
+    /**
+     * Identifies the projection, e.g. in the ETag of a response.
+     *
+     * @return "full", "compact" or the selected field names.
+     */
+    public String key() {
+        return switch (view) {
+            case FULL -> "full";
+            case COMPACT -> "compact";
+            case FIELDS -> String.join(",", selected.stream().map(Map.Entry::getKey).toList());
+        };
+    }
+
+    /**
+     * Tells whether the projection reads fields that Keycloak leaves out of brief representations.
+     *
+     * @return false if a brief representation holds every rendered field.
+     */
+    public boolean needsFullRepresentation() {
+        return switch (view) {
+            case FULL -> true;
+            case COMPACT -> false;
+            case FIELDS -> selected.stream().map(Map.Entry::getKey).anyMatch(BRIEF_EXCLUDED::contains);
+        };
+    }
+
+    /**
+     * Renders a single user.
+     *
+     * @param user The user.
+     * @return The object to serialize.
+     */
+    public Object apply(UserRepresentation user) {
+        return switch (view) {
+            case FULL -> user;
+            case COMPACT -> UserSummary.of(user);
+            case FIELDS -> new ProjectedUser(user, selected);
+        };
+    }
+
+    /**
+     * Renders a list of users.
+     *
+     * @param users The users.
+     * @return The list to serialize.
+     */
+    public List<?> apply(List<UserRepresentation> users) {
+        return view == View.FULL ? users : users.stream().map(this::apply).toList();
+    }
+
+    private static Map<String, Function<UserRepresentation, Object>> fields() {
+        Map<String, Function<UserRepresentation, Object>> fields = new LinkedHashMap<>();
+        fields.put("id", UserRepresentation::getId);
+        fields.put("username", UserRepresentation::getUsername);
+        fields.put("email", UserRepresentation::getEmail);
+        fields.put("firstName", UserRepresentation::getFirstName);
+        fields.put("lastName", UserRepresentation::getLastName);
+        fields.put("enabled", UserRepresentation::isEnabled);
+        fields.put("emailVerified", UserRepresentation::isEmailVerified);
+        fields.put("createdTimestamp", UserRepresentation::getCreatedTimestamp);
+        fields.put("attributes", UserRepresentation::getAttributes);
+        fields.put("requiredActions", UserRepresentation::getRequiredActions);
+        fields.put("realmRoles", UserRepresentation::getRealmRoles);
+        fields.put("groups", UserRepresentation::getGroups);
+        fields.put("federationLink", UserRepresentation::getFederationLink);
+        return Collections.unmodifiableMap(fields);
+    }
+
+    private record ProjectedUser(
+            UserRepresentation user,
+            List<Map.Entry<String, Function<UserRepresentation, Object>>> fields
+    ) implements JsonSerializable {
+        @Override
+        public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (Map.Entry<String, Function<UserRepresentation, Object>> field : fields) {
+                Object value = field.getValue().apply(user);
+                if (value != null) {
+                    provider.defaultSerializeField(field.getKey(), value, generator);
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator generator, SerializerProvider provider,
+                                      TypeSerializer typeSerializer) throws IOException {
+            serialize(generator, provider);
+        }
+    }
+}
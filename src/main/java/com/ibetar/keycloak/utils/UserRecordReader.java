@@ -0,0 +1,212 @@
+package com.ibetar.keycloak.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibetar.keycloak.entity.ImportFormat;
+import com.ibetar.keycloak.entity.UserDTO;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads UserDTO records one line at a time from a CSV or NDJSON file, tracking the byte offset
+ * after the last record so that a reader can later be reopened at exactly that position.
+ * <p>
+ * CSV files must start with a header naming the columns; the recognised columns are
+ * username, email, firstName, lastName, password, enabled and roles (separated by ';').
+ * A malformed record, or one without a username, is returned as a failed {@link Entry} and reading
+ * continues with the next line.
+ */
+public class UserRecordReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+    private InputStream input;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    private Map<String, Integer> columns;
+    private long offset;
+
+    /**
+     * Opens a reader positioned at the given byte offset.
+     *
+     * @param file         The file to read.
+     * @param format       The format of the file.
+     * @param startOffset  The byte offset to resume from, 0 to start at the beginning.
+     * @param objectMapper The ObjectMapper used for NDJSON records.
+     * @throws IOException If the file cannot be opened.
+     */
+    public UserRecordReader(Path file, ImportFormat format, long startOffset, ObjectMapper objectMapper)
+            throws IOException {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.input = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+        if (format == ImportFormat.CSV) {
+            String header = readLine();
+            if (header == null) {
+                throw new IOException("CSV file " + file + " has no header");
+            }
+            columns = parseHeader(header);
+        }
+        if (startOffset > offset) {
+            // Drop the buffered bytes and continue straight from the checkpoint
+            channel.position(startOffset);
+            this.input = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+            offset = startOffset;
+        }
+    }
+
+    /**
+     * Reads the next record, skipping blank lines.
+     *
+     * @return The next Entry, or null at the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public Entry next() throws IOException {
+        String text;
+        long start;
+        do {
+            start = offset;
+            text = readLine();
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+        UserDTO user;
+        try {
+            user = format == ImportFormat.CSV ? fromCsv(text) : objectMapper.readValue(text, UserDTO.class);
+        } catch (JsonProcessingException e) {
+            return new Entry(start, null, e.getOriginalMessage());
+        } catch (IOException e) {
+            return new Entry(start, null, e.getMessage());
+        }
+        if (user == null || user.username() == null || user.username().isBlank()) {
+            return new Entry(start, null, "Record has no username");
+        }
+        return new Entry(start, user, null);
+    }
+
+    /**
+     * @return The byte offset just after the last record returned by {@link #next()}.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private String readLine() throws IOException {
+        line.reset();
+        int b;
+        boolean read = false;
+        while ((b = input.read()) != -1) {
+            read = true;
+            offset++;
+            if (b == '\n') {
+                break;
+            }
+            line.write(b);
+        }
+        if (!read) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private UserDTO fromCsv(String text) throws IOException {
+        List<String> values = splitCsv(text);
+        String roles = value(values, "roles");
+        String enabled = value(values, "enabled");
+        return new UserDTO(
+                value(values, "username"),
+                value(values, "email"),
+                value(values, "firstname"),
+                value(values, "lastname"),
+                value(values, "password"),
+                enabled == null || enabled.isEmpty() || Boolean.parseBoolean(enabled),
+                roles == null || roles.isBlank() ? null : Arrays.stream(roles.split(";"))
+                        .map(String::trim)
+                        .filter(role -> !role.isEmpty())
+                        .toList());
+    }
+
+    private String value(List<String> values, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= values.size() ? null : values.get(index);
+    }
+
+    private static Map<String, Integer> parseHeader(String header) throws IOException {
+        List<String> names = splitCsv(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username")) {
+            throw new IOException("CSV header must contain a username column");
+        }
+        return columns;
+    }
+
+    private static List<String> splitCsv(String text) throws IOException {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            // The line may hold a password, it is not part of the message
+            throw new IOException("Unterminated quoted value");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * A record read from the file.
+     *
+     * @param offset The byte offset at which the record starts.
+     * @param user   The parsed user, null if the record is malformed.
+     * @param error  Why the record is malformed, null if it was parsed.
+     */
+    public record Entry(long offset, UserDTO user, String error) {
+        public boolean isMalformed() {
+            return user == null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.utils.KeyCloakProvider;
+import com.ibetar.keycloak.utils.KeyCloakResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.RoleRepresentation;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RealmRoleCacheTests {
+	private static final String REALM = "test-realm";
+	private KeyCloakProvider provider;
+	private RealmResource realmResource;
+	private RealmRoleCache cache;
+
+	@BeforeEach
+	void setUp() {
+		provider = mock(KeyCloakProvider.class);
+		realmResource = mock(RealmResource.class, RETURNS_DEEP_STUBS);
+		when(provider.getRealmResource(REALM)).thenReturn(realmResource);
+		when(realmResource.roles().list()).thenReturn(List.of(role("ADMIN"), role("user")));
+		KeyCloakProperties properties = new KeyCloakProperties();
+		cache = new RealmRoleCache(provider, properties, new KeyCloakResilience(properties, new SimpleMeterRegistry()));
+	}
+
+	@Test
+	void resolvesRolesIgnoringCaseWithSingleLoad() {
+		assertThat(cache.resolve(REALM, List.of("admin", "USER", "unknown")))
+				.extracting(RoleRepresentation::getName)
+				.containsExactly("ADMIN", "user");
+		assertThat(cache.find(REALM, "Admin")).isPresent();
+
+		verify(realmResource.roles(), times(1)).list();
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void invalidateForcesReload() {
+		cache.find(REALM, "user");
+		cache.invalidate(REALM);
+		cache.find(REALM, "user");
+
+		verify(realmResource.roles(), times(2)).list();
+		assertThat(cache.getMissCount()).isEqualTo(2);
+	}
+
+	@Test
+	void unknownRoleReloadsTheCatalogueOnce() {
+		KeyCloakProperties properties = new KeyCloakProperties();
+		properties.getRoles().setMissReloadInterval(Duration.ZERO);
+		cache = new RealmRoleCache(provider, properties, new KeyCloakResilience(properties, new SimpleMeterRegistry()));
+		cache.find(REALM, "user");
+		when(realmResource.roles().list()).thenReturn(List.of(role("ADMIN"), role("user"), role("auditor")));
+
+		assertThat(cache.resolve(REALM, List.of("auditor", "user")))
+				.extracting(RoleRepresentation::getName)
+				.containsExactly("auditor", "user");
+		assertThat(cache.find(REALM, "ghost")).isEmpty();
+
+		// one load, one reload for "auditor", one more for "ghost" which is still unknown
+		verify(realmResource.roles(), times(3)).list();
+	}
+
+	private static RoleRepresentation role(String name) {
+		RoleRepresentation role = new RoleRepresentation();
+		role.setName(name);
+		return role;
+	}
+}
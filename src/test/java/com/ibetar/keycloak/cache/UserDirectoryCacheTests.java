@@ -0,0 +1,63 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDirectoryCacheTests {
+
+	@Test
+	void evictsLeastRecentlyUsedAndById() {
+		KeyCloakProperties properties = new KeyCloakProperties();
+		properties.getUserCache().setMaxSize(2);
+		UserDirectoryCache cache = new UserDirectoryCache(properties);
+
+		cache.put("ana", List.of(user("1", "ana")));
+		cache.put("bob", List.of(user("2", "bob")));
+		assertThat(cache.get("ANA")).isPresent();
+		cache.put("carl", List.of(user("3", "carl")));
+
+		assertThat(cache.get("bob")).isEmpty();
+		assertThat(cache.getEvictionCount()).isEqualTo(1);
+
+		cache.evictUserId("1");
+		assertThat(cache.get("ana")).isEmpty();
+		assertThat(cache.get("carl")).isPresent();
+		assertThat(cache.getHitCount()).isEqualTo(2);
+		assertThat(cache.getMissCount()).isEqualTo(2);
+	}
+
+	@Test
+	void dropsLookupsFetchedAcrossAnEviction() {
+		UserDirectoryCache cache = new UserDirectoryCache(new KeyCloakProperties());
+
+		long generation = cache.generation();
+		// the user is changed while its first lookup is in flight, its id is not indexed yet
+		cache.evictUserId("1");
+
+		assertThat(cache.putIfUnchanged("ana", List.of(user("1", "ana")), generation)).isFalse();
+		assertThat(cache.get("ana")).isEmpty();
+		assertThat(cache.putIfUnchanged("ana", List.of(user("1", "ana")), cache.generation())).isTrue();
+		assertThat(cache.get("ana")).isPresent();
+	}
+
+	@Test
+	void ignoresEmptyResults() {
+		UserDirectoryCache cache = new UserDirectoryCache(new KeyCloakProperties());
+
+		cache.put("ghost", List.of());
+
+		assertThat(cache.size()).isZero();
+	}
+
+	private static UserRepresentation user(String id, String username) {
+		UserRepresentation user = new UserRepresentation();
+		user.setId(id);
+		user.setUsername(username);
+		return user;
+	}
+}
@@ -0,0 +1,62 @@
+package com.ibetar.keycloak.cache;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserVersionsTests {
+	private UserVersions versions;
+
+	@BeforeEach
+	void setUp() {
+		KeyCloakProperties properties = new KeyCloakProperties();
+		properties.getUserCache().setMaxSize(2);
+		versions = new UserVersions(properties);
+	}
+
+	@Test
+	void changeOfOneUserKeepsOtherUserTags() {
+		String alice = versions.userTag("alice", "full");
+		String bob = versions.userTag("Bob", "full");
+		String listing = versions.listingTag("list|0|100|full");
+
+		versions.usernameChanged("ALICE");
+
+		assertThat(versions.userTag("alice", "full")).isNotEqualTo(alice);
+		assertThat(versions.userTag("bob", "full")).isEqualTo(bob);
+		assertThat(versions.listingTag("list|0|100|full")).isNotEqualTo(listing);
+		assertThat(versions.userTag("bob", "compact")).isNotEqualTo(bob);
+	}
+
+	@Test
+	void changeByIdUsesRememberedUsername() {
+		UserRepresentation user = new UserRepresentation();
+		user.setId("42");
+		versions.remember("alice", List.of(user));
+		String alice = versions.userTag("alice", "full");
+		String bob = versions.userTag("bob", "full");
+
+		versions.userIdChanged("42");
+		assertThat(versions.userTag("alice", "full")).isNotEqualTo(alice);
+		assertThat(versions.userTag("bob", "full")).isEqualTo(bob);
+
+		versions.userIdChanged("unknown");
+		assertThat(versions.userTag("bob", "full")).isNotEqualTo(bob);
+	}
+
+	@Test
+	void forgettingStampsNeverRestoresOlderTags() {
+		String alice = versions.userTag("alice", "full");
+		versions.usernameChanged("alice");
+
+		versions.usernameChanged("bob");
+		versions.usernameChanged("carol");
+
+		assertThat(versions.userTag("alice", "full")).isNotEqualTo(alice);
+	}
+}
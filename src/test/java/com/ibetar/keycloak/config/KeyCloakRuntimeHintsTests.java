@@ -0,0 +1,45 @@
+package com.ibetar.keycloak.config;
+
+import org.jboss.resteasy.client.jaxrs.internal.proxy.ResteasyClientProxy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyCloakRuntimeHintsTests {
+	private RuntimeHints hints;
+
+	@BeforeEach
+	void setUp() {
+		hints = new RuntimeHints();
+		new KeyCloakRuntimeHints().registerHints(hints, getClass().getClassLoader());
+	}
+
+	@Test
+	void registersAdminClientProxiesAndRepresentations() {
+		assertThat(RuntimeHintsPredicates.proxies().forInterfaces(UsersResource.class, ResteasyClientProxy.class))
+				.accepts(hints);
+		assertThat(RuntimeHintsPredicates.proxies().forInterfaces(TokenService.class, ResteasyClientProxy.class))
+				.accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onMethod(UserRepresentation.class, "getUsername"))
+				.accepts(hints);
+	}
+
+	@Test
+	void registersResteasyProvidersFromTheClasspath() {
+		assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/jakarta.ws.rs.ext.Providers"))
+				.accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(
+				TypeReference.of("org.jboss.resteasy.plugins.providers.jackson.ResteasyJackson2Provider")))
+				.accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(
+				TypeReference.of("org.jboss.resteasy.resteasy_jaxrs.i18n.Messages_$bundle")))
+				.accepts(hints);
+	}
+}
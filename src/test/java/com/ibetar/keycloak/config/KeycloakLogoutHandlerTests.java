@@ -0,0 +1,38 @@
+package com.ibetar.keycloak.config;
+
+import com.ibetar.keycloak.jwt.RevokedTokenDenylist;
+import com.ibetar.keycloak.service.LogoutPropagationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class KeycloakLogoutHandlerTests {
+
+	@Test
+	void bearerLogoutEndsTheKeycloakSessionAndRevokesTheTokenMeanwhile() {
+		LogoutPropagationService propagationService = mock(LogoutPropagationService.class);
+		RevokedTokenDenylist denylist = new RevokedTokenDenylist(1000, 0.01, Duration.ofHours(1), Duration.ZERO);
+		KeycloakLogoutHandler handler = new KeycloakLogoutHandler(propagationService, denylist);
+		Jwt jwt = Jwt.withTokenValue("token")
+				.header("alg", "RS256")
+				.subject("ana-id")
+				.jti("jti-1")
+				.claim("sid", "sid-1")
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(300))
+				.build();
+
+		handler.logout(new MockHttpServletRequest(), new MockHttpServletResponse(), new JwtAuthenticationToken(jwt));
+
+		verify(propagationService).endSession("sid-1", "ana-id");
+		assertThat(denylist.isRevoked(jwt)).isTrue();
+	}
+}
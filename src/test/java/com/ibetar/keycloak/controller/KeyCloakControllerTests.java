@@ -0,0 +1,46 @@
+package com.ibetar.keycloak.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibetar.keycloak.cache.UserVersions;
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.service.AsyncKeyCloakDao;
+import com.ibetar.keycloak.service.KeyCloakDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class KeyCloakControllerTests {
+	private AsyncKeyCloakDao asyncService;
+	private KeyCloakController controller;
+
+	@BeforeEach
+	void setUp() {
+		asyncService = mock(AsyncKeyCloakDao.class);
+		controller = new KeyCloakController(mock(KeyCloakDao.class), asyncService, new ObjectMapper(),
+				new UserVersions(new KeyCloakProperties()));
+	}
+
+	@Test
+	void wildcardIfNoneMatchOnlyMatchesAnExistingUser() {
+		UserRepresentation ana = new UserRepresentation();
+		ana.setUsername("ana");
+		when(asyncService.findByUsername("ana")).thenReturn(CompletableFuture.completedFuture(List.of(ana)));
+		when(asyncService.findByUsername("nobody")).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+		ResponseEntity<?> missing = controller.findByUsername("nobody", null, null, "*").join();
+		ResponseEntity<?> existing = controller.findByUsername("ana", null, null, "*").join();
+
+		assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(missing.getBody()).isEqualTo(List.of());
+		assertThat(existing.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(existing.getHeaders().getETag()).isNotNull();
+	}
+}
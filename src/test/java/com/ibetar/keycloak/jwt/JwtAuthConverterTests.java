@@ -0,0 +1,63 @@
+package com.ibetar.keycloak.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthConverterTests {
+	private JwtAuthenticationCache cache;
+	private JwtAuthConverter converter;
+
+	@BeforeEach
+	void setUp() {
+		cache = new JwtAuthenticationCache(true, 100);
+		converter = new JwtAuthConverter(new MappingJwtGrantedAuthoritiesConverter(Map.of()), cache,
+				new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(converter, "keyCloakPrincipalAttr", "preferred_username");
+		ReflectionTestUtils.setField(converter, "resourceId", "api");
+	}
+
+	@Test
+	void convertsOnceAndServesRepeatsFromCache() {
+		Jwt jwt = jwt("token-1", Instant.now().plusSeconds(300));
+
+		AbstractAuthenticationToken first = converter.convert(jwt);
+		AbstractAuthenticationToken second = converter.convert(jwt);
+
+		assertThat(first.getName()).isEqualTo("ana");
+		assertThat(first.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("SCOPE_profile", "SCOPE_email", "ROLE_ADMIN");
+		assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void doesNotCacheExpiredTokens() {
+		converter.convert(jwt("token-2", Instant.now().minusSeconds(1)));
+
+		assertThat(cache.size()).isZero();
+	}
+
+	private static Jwt jwt(String id, Instant expiresAt) {
+		return Jwt.withTokenValue("value-" + id)
+				.header("alg", "RS256")
+				.jti(id)
+				.issuedAt(expiresAt.minusSeconds(600))
+				.expiresAt(expiresAt)
+				.claim("preferred_username", "ana")
+				.claim("scope", "profile email")
+				.claim("resource_access", Map.of("api", Map.of("roles", List.of("ADMIN"))))
+				.build();
+	}
+}
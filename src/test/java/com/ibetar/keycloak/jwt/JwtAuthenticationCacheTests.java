@@ -0,0 +1,51 @@
+package com.ibetar.keycloak.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthenticationCacheTests {
+
+	@Test
+	void fullCacheIsTrimmedInBatches() {
+		JwtAuthenticationCache cache = new JwtAuthenticationCache(true, 100);
+		AtomicInteger computations = new AtomicInteger();
+		for (int i = 0; i < 100; i++) {
+			cache.get(jwt("t" + i), jwt -> entry(computations));
+		}
+		assertThat(cache.size()).isEqualTo(100);
+
+		cache.get(jwt("t100"), jwt -> entry(computations));
+		assertThat(cache.size()).isEqualTo(91);
+		assertThat(cache.getEvictionCount()).isEqualTo(10);
+
+		for (int i = 101; i < 110; i++) {
+			cache.get(jwt("t" + i), jwt -> entry(computations));
+		}
+		// the nine misses after a trim only fill the freed room
+		assertThat(cache.size()).isEqualTo(100);
+		assertThat(cache.getEvictionCount()).isEqualTo(10);
+
+		cache.get(jwt("t109"), jwt -> entry(computations));
+		assertThat(computations).hasValue(110);
+	}
+
+	private static JwtAuthenticationCache.Entry entry(AtomicInteger computations) {
+		computations.incrementAndGet();
+		return new JwtAuthenticationCache.Entry(List.of(), "user", 0);
+	}
+
+	private static Jwt jwt(String id) {
+		return Jwt.withTokenValue(id)
+				.header("alg", "RS256")
+				.jti(id)
+				.subject("user")
+				.expiresAt(Instant.now().plusSeconds(300))
+				.build();
+	}
+}
@@ -0,0 +1,49 @@
+package com.ibetar.keycloak.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappingJwtGrantedAuthoritiesConverterTests {
+	private final MappingJwtGrantedAuthoritiesConverter converter =
+			new MappingJwtGrantedAuthoritiesConverter(Map.of("read", "users:read", "view", "users:read"));
+
+	@Test
+	void precompiledMatchesUncompiledConversion() {
+		Jwt jwt = jwt("read  email view profile email");
+
+		Collection<GrantedAuthority> precompiled = converter.convert(jwt);
+		converter.setPrecompiled(false);
+		Collection<GrantedAuthority> uncompiled = converter.convert(jwt);
+
+		assertThat(precompiled).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("SCOPE_users:read", "SCOPE_email", "SCOPE_profile");
+		assertThat(uncompiled).extracting(GrantedAuthority::getAuthority)
+				.contains("SCOPE_users:read", "SCOPE_email", "SCOPE_profile");
+	}
+
+	@Test
+	void sharesResultPerScopeString() {
+		assertThat(converter.convert(jwt("read email"))).isSameAs(converter.convert(jwt("read email")));
+	}
+
+	@Test
+	void convertsCollectionClaimsAndMissingClaims() {
+		Jwt collection = Jwt.withTokenValue("t").header("alg", "none").claim("scp", List.of("read", "email")).build();
+		Jwt none = Jwt.withTokenValue("t").header("alg", "none").claim("sub", "ana").build();
+
+		assertThat(converter.convert(collection)).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("SCOPE_users:read", "SCOPE_email");
+		assertThat(converter.convert(none)).isEmpty();
+	}
+
+	private static Jwt jwt(String scope) {
+		return Jwt.withTokenValue("t").header("alg", "none").claim("scope", scope).build();
+	}
+}
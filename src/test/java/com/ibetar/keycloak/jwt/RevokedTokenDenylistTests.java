@@ -0,0 +1,75 @@
+package com.ibetar.keycloak.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenDenylistTests {
+	private RevokedTokenDenylist denylist;
+	private SimpleMeterRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		denylist = new RevokedTokenDenylist(1000, 0.01, Duration.ofHours(1), Duration.ZERO);
+		registry = new SimpleMeterRegistry();
+		denylist.bindTo(registry);
+	}
+
+	@Test
+	void rejectsRevokedTokensAndSessionsOnly() {
+		Jwt revoked = jwt("t1", "s1", "u1", Instant.now());
+		Jwt sameSession = jwt("t2", "s1", "u1", Instant.now());
+		Jwt other = jwt("t3", "s2", "u1", Instant.now());
+
+		denylist.revokeToken("t1", Instant.now().plusSeconds(60));
+		assertThat(denylist.validate(revoked).hasErrors()).isTrue();
+		assertThat(denylist.isRevoked(sameSession)).isFalse();
+
+		denylist.revokeSession("s1");
+		assertThat(denylist.isRevoked(sameSession)).isTrue();
+		assertThat(denylist.validate(other).hasErrors()).isFalse();
+		assertThat(registry.get("jwt.denylist.checks").tag("result", "revoked").functionCounter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void subjectRevocationSparesTokensIssuedLater() {
+		Jwt before = jwt("t1", null, "u1", Instant.now().minusSeconds(30));
+		Jwt after = jwt("t2", null, "u1", Instant.now().plusSeconds(5));
+
+		denylist.revokeSubject("u1");
+
+		assertThat(denylist.isRevoked(before)).isTrue();
+		assertThat(denylist.isRevoked(after)).isFalse();
+	}
+
+	@Test
+	void purgeDropsExpiredRevocations() {
+		denylist.revokeToken("expired", Instant.now().minusSeconds(1));
+		denylist.revokeToken("active", Instant.now().plusSeconds(60));
+
+		denylist.purge();
+
+		assertThat(denylist.size()).isEqualTo(1);
+		assertThat(denylist.isRevoked(jwt("active", null, "u1", Instant.now()))).isTrue();
+		assertThat(denylist.isRevoked(jwt("expired", null, "u1", Instant.now()))).isFalse();
+	}
+
+	private static Jwt jwt(String id, String sessionId, String subject, Instant issuedAt) {
+		Jwt.Builder builder = Jwt.withTokenValue("token")
+				.header("alg", "RS256")
+				.jti(id)
+				.subject(subject)
+				.issuedAt(issuedAt)
+				.expiresAt(issuedAt.plusSeconds(300));
+		if (sessionId != null) {
+			builder.claim("sid", sessionId);
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,326 @@
+package com.ibetar.keycloak.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the Keycloak token, certs and admin user endpoints used by this service.
+ * Users and roles live in memory. Every request can be delayed by a fixed latency plus jitter and
+ * failed with a 503 at a configurable rate, and upstream calls are counted per operation.
+ */
+class FakeKeycloakServer implements AutoCloseable {
+	private static final Pattern ADMIN_PATH = Pattern.compile("/admin/realms/([^/]+)/(.*)");
+	private final ObjectMapper objectMapper = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	private final HttpServer server;
+	private final TestTokens tokens;
+	private final Map<String, UserRepresentation> users = new ConcurrentSkipListMap<>();
+	private final Map<String, List<RoleRepresentation>> roleMappings = new ConcurrentHashMap<>();
+	private final List<RoleRepresentation> roles = new ArrayList<>();
+	private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+	private volatile long latencyMillis;
+	private volatile long jitterMillis;
+	private volatile double errorRate;
+
+	FakeKeycloakServer(TestTokens tokens) throws IOException {
+		this.tokens = tokens;
+		for (String name : List.of("user", "ADMIN", "PERSON", "ENTERPRISE")) {
+			RoleRepresentation role = new RoleRepresentation(name, null, false);
+			role.setId(UUID.randomUUID().toString());
+			roles.add(role);
+		}
+		// The JDK server writes headers and body separately, without this every response waits on a delayed ACK
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	String getBaseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	void setLatency(long latencyMillis, long jitterMillis) {
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+	}
+
+	void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Adds users directly to the store, bypassing the admin API.
+	 */
+	List<UserRepresentation> seedUsers(String prefix, int count) {
+		List<UserRepresentation> seeded = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			UserRepresentation user = new UserRepresentation();
+			user.setId(UUID.randomUUID().toString());
+			user.setUsername(prefix + i);
+			user.setEmail(prefix + i + "@mail.com");
+			user.setFirstName("First" + i);
+			user.setLastName("Last" + i);
+			user.setEnabled(true);
+			user.setCreatedTimestamp(System.currentTimeMillis());
+			users.put(user.getId(), user);
+			seeded.add(user);
+		}
+		return seeded;
+	}
+
+	/**
+	 * @return A snapshot of the upstream call counters, keyed by operation.
+	 */
+	Map<String, Long> snapshotCalls() {
+		Map<String, Long> snapshot = new TreeMap<>();
+		calls.forEach((operation, count) -> snapshot.put(operation, count.sum()));
+		return snapshot;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath();
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			byte[] body = exchange.getRequestBody().readAllBytes();
+			delay();
+
+			if (path.endsWith("/protocol/openid-connect/token")) {
+				count("token");
+				respond(exchange, 200, tokens.adminTokenResponse());
+				return;
+			}
+			if (path.endsWith("/protocol/openid-connect/certs")) {
+				count("certs");
+				respond(exchange, 200, tokens.jwkSetJson());
+				return;
+			}
+			Matcher admin = ADMIN_PATH.matcher(path);
+			if (!admin.matches()) {
+				respond(exchange, 404, "{}");
+				return;
+			}
+			String[] segments = admin.group(2).split("/");
+			String operation = method + " " + template(segments);
+			count(operation);
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				respond(exchange, 503, "{\"error\":\"injected\"}");
+				return;
+			}
+			route(exchange, method, segments, query, body);
+		} catch (Exception e) {
+			respond(exchange, 500, "{\"error\":\"" + e.getClass().getSimpleName() + "\"}");
+		}
+	}
+
+	private void route(HttpExchange exchange, String method, String[] segments, Map<String, String> query,
+			byte[] body)
+			throws IOException {
+		if (segments[0].equals("roles") && segments.length == 1) {
+			respond(exchange, 200, objectMapper.writeValueAsString(roles));
+			return;
+		}
+		if (!segments[0].equals("users")) {
+			respond(exchange, 404, "{}");
+			return;
+		}
+		if (segments.length == 1) {
+			switch (method) {
+				case "GET" -> respond(exchange, 200, objectMapper.writeValueAsString(search(query)));
+				case "POST" -> create(exchange, body);
+				default -> respond(exchange, 405, "{}");
+			}
+			return;
+		}
+		if (segments[1].equals("count")) {
+			respond(exchange, 200, Integer.toString(filter(query).size()));
+			return;
+		}
+		String id = segments[1];
+		UserRepresentation user = users.get(id);
+		if (user == null) {
+			respond(exchange, 404, "{\"error\":\"User not found\"}");
+			return;
+		}
+		if (segments.length == 2) {
+			switch (method) {
+				case "GET" -> respond(exchange, 200, objectMapper.writeValueAsString(user));
+				case "PUT" -> {
+					UserRepresentation update = objectMapper.readValue(body, UserRepresentation.class);
+					if (update.getEmail() != null) user.setEmail(update.getEmail());
+					if (update.getFirstName() != null) user.setFirstName(update.getFirstName());
+					if (update.getLastName() != null) user.setLastName(update.getLastName());
+					if (update.isEnabled() != null) user.setEnabled(update.isEnabled());
+					respond(exchange, 204, null);
+				}
+				case "DELETE" -> {
+					users.remove(id);
+					roleMappings.remove(id);
+					respond(exchange, 204, null);
+				}
+				default -> respond(exchange, 405, "{}");
+			}
+			return;
+		}
+		if (segments[2].equals("reset-password")) {
+			respond(exchange, 204, null);
+		} else if (segments[2].equals("role-mappings")) {
+			List<RoleRepresentation> mapped = roleMappings.computeIfAbsent(id, key -> new ArrayList<>());
+			switch (method) {
+				case "GET" -> respond(exchange, 200, objectMapper.writeValueAsString(mapped));
+				case "POST" -> {
+					mapped.addAll(objectMapper.readValue(body,
+							new TypeReference<List<RoleRepresentation>>() {}));
+					respond(exchange, 204, null);
+				}
+				case "DELETE" -> {
+					List<RoleRepresentation> removed = objectMapper.readValue(body,
+							new TypeReference<List<RoleRepresentation>>() {});
+					mapped.removeIf(role -> removed.stream().anyMatch(r -> r.getName().equals(role.getName())));
+					respond(exchange, 204, null);
+				}
+				default -> respond(exchange, 405, "{}");
+			}
+		} else {
+			respond(exchange, 404, "{}");
+		}
+	}
+
+	private void create(HttpExchange exchange, byte[] body) throws IOException {
+		UserRepresentation user = objectMapper.readValue(body, UserRepresentation.class);
+		boolean exists = users.values().stream().anyMatch(u -> u.getUsername().equalsIgnoreCase(user.getUsername()));
+		if (exists) {
+			respond(exchange, 409, "{\"errorMessage\":\"User exists with same username\"}");
+			return;
+		}
+		user.setId(UUID.randomUUID().toString());
+		user.setCredentials(null);
+		user.setCreatedTimestamp(System.currentTimeMillis());
+		users.put(user.getId(), user);
+		exchange.getResponseHeaders().add("Location",
+				getBaseUrl() + exchange.getRequestURI().getPath() + "/" + user.getId());
+		respond(exchange, 201, null);
+	}
+
+	private List<UserRepresentation> search(Map<String, String> query) {
+		List<UserRepresentation> matches = filter(query);
+		int first = Integer.parseInt(query.getOrDefault("first", "0"));
+		int max = Integer.parseInt(query.getOrDefault("max", "100"));
+		return matches.subList(Math.min(first, matches.size()), Math.min(first + max, matches.size()));
+	}
+
+	private List<UserRepresentation> filter(Map<String, String> query) {
+		boolean exact = Boolean.parseBoolean(query.getOrDefault("exact", "false"));
+		List<UserRepresentation> matches = new ArrayList<>();
+		for (UserRepresentation user : users.values()) {
+			if (matches(user.getUsername(), query.get("username"), exact)
+					&& matches(user.getEmail(), query.get("email"), exact)
+					&& matches(user.getFirstName(), query.get("firstName"), exact)
+					&& matches(user.getLastName(), query.get("lastName"), exact)
+					&& (query.get("enabled") == null
+						|| Boolean.parseBoolean(query.get("enabled")) == Boolean.TRUE.equals(user.isEnabled()))
+					&& matchesAny(user, query.get("search"))) {
+				matches.add(user);
+			}
+		}
+		return matches;
+	}
+
+	private static boolean matches(String value, String expected, boolean exact) {
+		if (expected == null) {
+			return true;
+		}
+		if (value == null) {
+			return false;
+		}
+		return exact ? value.equalsIgnoreCase(expected)
+				: value.toLowerCase(Locale.ROOT).contains(expected.toLowerCase(Locale.ROOT));
+	}
+
+	private static boolean matchesAny(UserRepresentation user, String search) {
+		if (search == null || search.equals("*")) {
+			return true;
+		}
+		String term = search.replace("*", "");
+		return matches(user.getUsername(), term, false)
+				|| matches(user.getEmail(), term, false)
+				|| matches(user.getFirstName(), term, false)
+				|| matches(user.getLastName(), term, false);
+	}
+
+	private void delay() {
+		long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void count(String operation) {
+		calls.computeIfAbsent(operation, key -> new LongAdder()).increment();
+	}
+
+	private static String template(String[] segments) {
+		StringJoiner joiner = new StringJoiner("/");
+		for (int i = 0; i < segments.length; i++) {
+			joiner.add(i == 1 && segments[0].equals("users") && !segments[1].equals("count") ? "{id}" : segments[i]);
+		}
+		return joiner.toString();
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int index = pair.indexOf('=');
+			String key = URLDecoder.decode(index < 0 ? pair : pair.substring(0, index), StandardCharsets.UTF_8);
+			String value = index < 0 ? "" : URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8);
+			query.put(key, value);
+		}
+		return query;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.ibetar.keycloak.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load test of the user endpoints against {@link FakeKeycloakServer}.
+ * Every request goes through the real security chain with a signed token, the controllers,
+ * the service layer and the admin client. Each operation runs as its own phase and the report
+ * shows p50/p99 latency, throughput and the upstream calls made per request.
+ * <p>
+ * Disabled by default, run it with:
+ * <pre>
+ * mvn test -Dtest=KeyCloakLoadTests -Dloadtest=true -Dloadtest.requests=500 -Dloadtest.concurrency=32
+ * </pre>
+ * Upstream latency and failures are set with {@code loadtest.latency-ms}, {@code loadtest.jitter-ms}
+ * and {@code loadtest.error-rate}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class KeyCloakLoadTests {
+	private static final String REALM = "loadtest-realm";
+	private static final String RESOURCE_ID = "auth-service-api-gateway";
+	private static final String BASE_PATH = "/api/v1/keycloak/admin/users";
+	private static final int REQUESTS = Integer.getInteger("loadtest.requests", 200);
+	private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 16);
+	private static final long LATENCY_MS = Long.getLong("loadtest.latency-ms", 2);
+	private static final long JITTER_MS = Long.getLong("loadtest.jitter-ms", 3);
+	private static final double ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.error-rate", "0"));
+
+	private static final TestTokens tokens = new TestTokens();
+	private static final FakeKeycloakServer keycloak = startKeycloak();
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5))
+			.build();
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void keycloakProperties(DynamicPropertyRegistry registry) {
+		registry.add("keycloak.server-url", keycloak::getBaseUrl);
+		registry.add("keycloak.realm-name", () -> REALM);
+		registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri",
+				() -> keycloak.getBaseUrl() + "/realms/" + REALM);
+		registry.add("logging.level.org.keycloak", () -> "WARN");
+	}
+
+	@AfterAll
+	static void stopKeycloak() {
+		keycloak.close();
+	}
+
+	@Test
+	void userEndpointsUnderLoad() throws InterruptedException {
+		String token = tokens.issue(keycloak.getBaseUrl() + "/realms/" + REALM, RESOURCE_ID,
+				"load-admin", List.of("ADMIN"), Duration.ofHours(1));
+		List<UserRepresentation> seeded = keycloak.seedUsers("seeded", REQUESTS);
+		keycloak.setLatency(LATENCY_MS, JITTER_MS);
+		keycloak.setErrorRate(ERROR_RATE);
+
+		List<LoadReport> reports = new ArrayList<>();
+		reports.add(run("create", i -> post(token, BASE_PATH + "/create", userJson("created" + i))));
+		reports.add(run("list", i -> get(token, BASE_PATH + "?first=" + (i % 10) * 20 + "&max=50")));
+		reports.add(run("search", i -> get(token, BASE_PATH + "/user/created" + (i % REQUESTS))));
+		reports.add(run("update", i -> put(token, BASE_PATH + "/update/" + seeded.get(i).getId(),
+				userJson(seeded.get(i).getUsername()))));
+		reports.add(run("patch", i -> patch(token, BASE_PATH + "/update/" + seeded.get(i).getId(),
+				"{\"email\":\"patched" + i + "@mail.com\"}")));
+		reports.add(run("delete", i -> delete(token, BASE_PATH + "/delete/" + seeded.get(i).getId())));
+
+		log.info("Load test: {} requests per operation, concurrency {}, upstream latency {}+{}ms, error rate {}",
+				REQUESTS, CONCURRENCY, LATENCY_MS, JITTER_MS, ERROR_RATE);
+		reports.forEach(report -> log.info("{}", report));
+
+		if (ERROR_RATE == 0) {
+			assertThat(reports).allSatisfy(report -> assertThat(report.getErrors()).isZero());
+		}
+	}
+
+	private LoadReport run(String operation, IntFunction<HttpRequest> requests) throws InterruptedException {
+		LoadReport report = new LoadReport(operation, REQUESTS);
+		AtomicInteger next = new AtomicInteger();
+		var before = keycloak.snapshotCalls();
+		ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+		long start = System.nanoTime();
+		for (int worker = 0; worker < CONCURRENCY; worker++) {
+			workers.execute(() -> {
+				for (int i = next.getAndIncrement(); i < REQUESTS; i = next.getAndIncrement()) {
+					long sent = System.nanoTime();
+					int status;
+					try {
+						status = client.send(requests.apply(i), HttpResponse.BodyHandlers.discarding()).statusCode();
+					} catch (IOException e) {
+						status = -1;
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					report.record(System.nanoTime() - sent, status);
+				}
+			});
+		}
+		workers.shutdown();
+		assertThat(workers.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+		report.finish(System.nanoTime() - start, before, keycloak.snapshotCalls());
+		return report;
+	}
+
+	private HttpRequest get(String token, String path) {
+		return request(token, path).GET().build();
+	}
+
+	private HttpRequest post(String token, String path, String body) {
+		return request(token, path).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+	}
+
+	private HttpRequest put(String token, String path, String body) {
+		return request(token, path).PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+	}
+
+	private HttpRequest patch(String token, String path, String body) {
+		return request(token, path).method("PATCH", HttpRequest.BodyPublishers.ofString(body)).build();
+	}
+
+	private HttpRequest delete(String token, String path) {
+		return request(token, path).DELETE().build();
+	}
+
+	private HttpRequest.Builder request(String token, String path) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.timeout(Duration.ofSeconds(30))
+				.header("Authorization", "Bearer " + token)
+				.header("Content-Type", "application/json");
+	}
+
+	private static String userJson(String username) {
+		return """
+				{"username":"%s","email":"%s@mail.com","firstName":"Load","lastName":"Test",\
+				"password":"secret","enabled":true,"roles":["user"]}""".formatted(username, username);
+	}
+
+	private static FakeKeycloakServer startKeycloak() {
+		try {
+			return new FakeKeycloakServer(tokens);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
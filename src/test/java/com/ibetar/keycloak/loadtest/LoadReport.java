@@ -0,0 +1,97 @@
+package com.ibetar.keycloak.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency samples and outcome counts of one load test phase.
+ */
+class LoadReport {
+	private final String operation;
+	private final AtomicLongArray latencies;
+	private final AtomicInteger recorded = new AtomicInteger();
+	private final AtomicInteger errors = new AtomicInteger();
+	private final Map<Integer, AtomicInteger> statuses = new ConcurrentSkipListMap<>();
+	private long elapsedNanos;
+	private Map<String, Long> upstreamCalls = Map.of();
+
+	LoadReport(String operation, int capacity) {
+		this.operation = operation;
+		this.latencies = new AtomicLongArray(capacity);
+	}
+
+	/**
+	 * @param status The HTTP status of the response, or -1 when no response was received.
+	 */
+	void record(long latencyNanos, int status) {
+		boolean success = status >= 200 && status < 300;
+		statuses.computeIfAbsent(status, key -> new AtomicInteger()).incrementAndGet();
+		int index = recorded.getAndIncrement();
+		if (index < latencies.length()) {
+			latencies.set(index, latencyNanos);
+		}
+		if (!success) {
+			errors.incrementAndGet();
+		}
+	}
+
+	void finish(long elapsedNanos, Map<String, Long> before, Map<String, Long> after) {
+		this.elapsedNanos = elapsedNanos;
+		Map<String, Long> delta = new TreeMap<>();
+		after.forEach((call, count) -> {
+			long diff = count - before.getOrDefault(call, 0L);
+			if (diff > 0) {
+				delta.put(call, diff);
+			}
+		});
+		this.upstreamCalls = delta;
+	}
+
+	int getRequests() {
+		return Math.min(recorded.get(), latencies.length());
+	}
+
+	int getErrors() {
+		return errors.get();
+	}
+
+	Map<String, Long> getUpstreamCalls() {
+		return upstreamCalls;
+	}
+
+	double percentileMillis(double percentile) {
+		int count = getRequests();
+		if (count == 0) {
+			return 0;
+		}
+		long[] sorted = new long[count];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = latencies.get(i);
+		}
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+		return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+	}
+
+	double throughput() {
+		return elapsedNanos == 0 ? 0 : getRequests() / (elapsedNanos / 1_000_000_000.0);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder calls = new StringBuilder();
+		long total = 0;
+		for (Map.Entry<String, Long> call : upstreamCalls.entrySet()) {
+			total += call.getValue();
+			calls.append(String.format("%n    %-40s %8d (%.2f/op)", call.getKey(), call.getValue(),
+					(double) call.getValue() / Math.max(1, getRequests())));
+		}
+		return String.format("%-8s requests=%d errors=%d statuses=%s p50=%.2fms p99=%.2fms throughput=%.1f/s upstream=%d (%.2f/op)%s",
+				operation, getRequests(), getErrors(), statuses, percentileMillis(50), percentileMillis(99), throughput(),
+				total, (double) total / Math.max(1, getRequests()), calls);
+	}
+}
@@ -0,0 +1,86 @@
+package com.ibetar.keycloak.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Issues RS256 tokens shaped like the Keycloak access tokens this service accepts, signed with a
+ * key generated per run and published by {@link FakeKeycloakServer} as its JWK set.
+ */
+class TestTokens {
+	private final RSAKey signingKey;
+
+	TestTokens() {
+		try {
+			this.signingKey = new RSAKeyGenerator(2048)
+					.keyID(UUID.randomUUID().toString())
+					.algorithm(JWSAlgorithm.RS256)
+					.generate();
+		} catch (JOSEException e) {
+			throw new IllegalStateException("Could not generate the test signing key", e);
+		}
+	}
+
+	/**
+	 * Signs a user access token carrying the given client roles.
+	 *
+	 * @param issuer     The issuer claim, must match the configured issuer-uri.
+	 * @param resourceId The client whose roles are granted, e.g. "auth-service-api-gateway".
+	 * @param username   The preferred_username claim.
+	 * @param roles      The client roles, e.g. "ADMIN".
+	 * @param validity   How long the token stays valid.
+	 * @return The serialized JWT.
+	 */
+	String issue(String issuer, String resourceId, String username, List<String> roles, Duration validity) {
+		Instant now = Instant.now();
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.issuer(issuer)
+				.subject(UUID.randomUUID().toString())
+				.jwtID(UUID.randomUUID().toString())
+				.issueTime(Date.from(now))
+				.expirationTime(Date.from(now.plus(validity)))
+				.claim("preferred_username", username)
+				.claim("scope", "openid profile email")
+				.claim("resource_access", Map.of(resourceId, Map.of("roles", roles)))
+				.build();
+		try {
+			SignedJWT jwt = new SignedJWT(
+					new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+			jwt.sign(new RSASSASigner(signingKey));
+			return jwt.serialize();
+		} catch (JOSEException e) {
+			throw new IllegalStateException("Could not sign the test token", e);
+		}
+	}
+
+	/**
+	 * @return The public signing key as a JWK set document.
+	 */
+	String jwkSetJson() {
+		return new JWKSet(signingKey.toPublicJWK()).toString();
+	}
+
+	/**
+	 * @return A token endpoint response for the admin client, the token itself is opaque to the fake.
+	 */
+	String adminTokenResponse() {
+		return """
+				{"access_token":"%s","expires_in":300,"refresh_expires_in":1800,\
+				"refresh_token":"%s","token_type":"Bearer","scope":"profile email"}"""
+				.formatted(UUID.randomUUID(), UUID.randomUUID());
+	}
+}
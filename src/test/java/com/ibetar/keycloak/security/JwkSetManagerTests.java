@@ -0,0 +1,126 @@
+package com.ibetar.keycloak.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class JwkSetManagerTests {
+	private static final String JWK_SET_URI = "http://kc/realms/test/protocol/openid-connect/certs";
+	private static RSAKey first;
+	private static RSAKey second;
+	private final RestTemplate restTemplate = mock(RestTemplate.class);
+	private JwkSetManager manager;
+
+	@BeforeAll
+	static void generateKeys() throws Exception {
+		first = new RSAKeyGenerator(2048).keyID("kid-1").generate();
+		second = new RSAKeyGenerator(2048).keyID("kid-2").generate();
+	}
+
+	@AfterEach
+	void tearDown() {
+		manager.close();
+	}
+
+	@Test
+	void concurrentUnknownKidLookupsShareOneFetch() throws Exception {
+		start(Duration.ZERO);
+		CountDownLatch release = new CountDownLatch(1);
+		when(restTemplate.getForObject(JWK_SET_URI, String.class)).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return keySet(first, second);
+		});
+		List<List<JWK>> results = new CopyOnWriteArrayList<>();
+		List<Thread> callers = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread caller = new Thread(() -> {
+				try {
+					results.add(manager.get(selector("kid-2"), null));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			callers.add(caller);
+			caller.start();
+		}
+
+		// Every caller is parked either in the fetch or waiting for it before the fetch may finish
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (callers.stream().anyMatch(caller -> caller.getState() != Thread.State.WAITING
+				&& caller.getState() != Thread.State.TIMED_WAITING) && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		release.countDown();
+		for (Thread caller : callers) {
+			caller.join(5000);
+		}
+
+		verify(restTemplate, times(1)).getForObject(JWK_SET_URI, String.class);
+		assertThat(results).hasSize(8).allSatisfy(keys ->
+				assertThat(keys).singleElement().extracting(JWK::getKeyID).isEqualTo("kid-2"));
+	}
+
+	@Test
+	void unknownKidInsideTheRefetchIntervalDoesNotFetch() throws Exception {
+		start(Duration.ofHours(1));
+
+		assertThat(manager.get(selector("kid-2"), null)).isEmpty();
+		assertThat(manager.get(selector("kid-1"), null)).singleElement().extracting(JWK::getKeyID).isEqualTo("kid-1");
+		verifyNoInteractions(restTemplate);
+	}
+
+	@Test
+	void failedRefreshKeepsTheLastKnownKeys() throws Exception {
+		start(Duration.ZERO);
+		when(restTemplate.getForObject(JWK_SET_URI, String.class))
+				.thenThrow(new ResourceAccessException("Connection refused"));
+
+		assertThat(manager.refetch()).isNull();
+		assertThat(manager.get(selector("kid-2"), null)).isEmpty();
+
+		assertThat(manager.getKeys().getKeyByKeyId("kid-1")).isNotNull();
+		assertThat(manager.get(selector("kid-1"), null)).singleElement().extracting(JWK::getKeyID).isEqualTo("kid-1");
+	}
+
+	/**
+	 * Starts the manager, waits for its background prefetch of the first key set and forgets that call.
+	 */
+	private void start(Duration minRefetchInterval) throws InterruptedException {
+		when(restTemplate.getForObject(JWK_SET_URI, String.class)).thenReturn(keySet(first));
+		manager = new JwkSetManager(restTemplate, JWK_SET_URI, Duration.ofHours(1), minRefetchInterval);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (manager.getKeys() == null && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(manager.getKeys()).as("prefetched key set").isNotNull();
+		// Joins the prefetch if it is still finishing, so its timestamp is set before the test starts
+		manager.refetch();
+		reset(restTemplate);
+	}
+
+	private static String keySet(RSAKey... keys) {
+		return new JWKSet(List.of(keys)).toString();
+	}
+
+	private static JWKSelector selector(String keyId) {
+		return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+	}
+}
@@ -0,0 +1,204 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.cache.RealmRoleCache;
+import com.ibetar.keycloak.cache.UserDirectoryCache;
+import com.ibetar.keycloak.cache.UserVersions;
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.entity.BulkItemStatus;
+import com.ibetar.keycloak.entity.BulkResult;
+import com.ibetar.keycloak.entity.UserDTO;
+import com.ibetar.keycloak.entity.UserPatchDTO;
+import com.ibetar.keycloak.entity.UserPatchResult;
+import com.ibetar.keycloak.entity.UserSearchCriteria;
+import com.ibetar.keycloak.exception.BadRequestException;
+import com.ibetar.keycloak.exception.DuplicateResourceException;
+import com.ibetar.keycloak.exception.InternalCreationException;
+import com.ibetar.keycloak.jwt.RevokedTokenDenylist;
+import com.ibetar.keycloak.utils.KeyCloakProvider;
+import com.ibetar.keycloak.utils.KeyCloakResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.RoleScopeResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.ArgumentCaptor;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class KeyCloakServiceTests {
+	private static final String REALM = "test-realm";
+	private UsersResource usersResource;
+	private KeyCloakService service;
+
+	@BeforeEach
+	void setUp() {
+		KeyCloakProvider provider = mock(KeyCloakProvider.class);
+		usersResource = mock(UsersResource.class, RETURNS_DEEP_STUBS);
+		when(provider.getUserResource()).thenReturn(usersResource);
+		when(provider.getRealmName()).thenReturn(REALM);
+		RealmRoleCache roleCache = mock(RealmRoleCache.class);
+		RoleRepresentation admin = new RoleRepresentation("ADMIN", null, false);
+		when(roleCache.resolve(REALM, List.of("ADMIN"))).thenReturn(List.of(admin));
+		KeyCloakProperties properties = new KeyCloakProperties();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service = new KeyCloakService(provider, properties, roleCache, new UserDirectoryCache(properties),
+				Runnable::run, registry, new KeyCloakResilience(properties, registry), new UserVersions(properties),
+				new RevokedTokenDenylist(1000, 0.01, Duration.ofHours(1), Duration.ZERO));
+	}
+
+	@Test
+	void createsUserWithEmbeddedPasswordAndReturnsItsId() {
+		when(usersResource.create(any())).thenReturn(
+				Response.created(URI.create("http://kc/admin/realms/test-realm/users/42")).build());
+
+		String userId = service.createUser(user());
+
+		ArgumentCaptor<UserRepresentation> created = ArgumentCaptor.forClass(UserRepresentation.class);
+		verify(usersResource).create(created.capture());
+		assertThat(userId).isEqualTo("42");
+		assertThat(created.getValue().getCredentials())
+				.singleElement()
+				.satisfies(credential -> assertThat(credential.getValue()).isEqualTo("secret"));
+		verify(usersResource.get("42").roles().realmLevel()).add(List.of(new RoleRepresentation("ADMIN", null, false)));
+		verify(usersResource.get("42"), never()).resetPassword(any());
+	}
+
+	@Test
+	void failedRoleAssignmentRemovesTheCreatedUser() {
+		when(usersResource.create(any())).thenReturn(
+				Response.created(URI.create("http://kc/admin/realms/test-realm/users/42")).build());
+		RoleScopeResource realmRoles = usersResource.get("42").roles().realmLevel();
+		doThrow(new IllegalStateException("boom")).when(realmRoles).add(any());
+
+		assertThatThrownBy(() -> service.createUser(user())).isInstanceOf(InternalCreationException.class);
+
+		verify(usersResource.get("42")).remove();
+	}
+
+	@Test
+	void conflictIsReportedAsDuplicate() {
+		when(usersResource.create(any())).thenReturn(Response.status(Response.Status.CONFLICT).build());
+
+		assertThatThrownBy(() -> service.createUser(user())).isInstanceOf(DuplicateResourceException.class);
+	}
+
+	@Test
+	void unknownRoleFailsCreationBeforeAnyWrite() {
+		UserDTO typo = new UserDTO("ana", "ana@mail.com", "Ana", "Lopez", "secret", true, List.of("ADMNI"));
+
+		assertThatThrownBy(() -> service.createUser(typo)).isInstanceOf(BadRequestException.class);
+		BulkResult result = service.createUsers(List.of(typo, user()).stream(), 1);
+
+		assertThat(result.items().get(0).status()).isEqualTo(BulkItemStatus.FAILED);
+		assertThat(result.items().get(0).message()).contains("ADMNI");
+		verify(usersResource, times(1)).create(argThat(created -> created.getUsername().equals("ana")));
+	}
+
+	@Test
+	void patchSendsOnlyChangedProfileWithoutCredentials() {
+		UserRepresentation current = new UserRepresentation();
+		current.setEmail("ana@mail.com");
+		current.setFirstName("Ana");
+		current.setLastName("Lopez");
+		current.setEnabled(true);
+		current.setAttributes(Map.of("team", List.of("blue")));
+		current.setRequiredActions(List.of("VERIFY_EMAIL"));
+		when(usersResource.get("42").toRepresentation()).thenReturn(current);
+
+		UserPatchResult result = service.patchUser("42",
+				new UserPatchDTO("Ana@Mail.com", "Ana", null, null, null, null, null));
+
+		// a case-only change of the email is still a change
+		assertThat(result.updatedFields()).containsExactly("email");
+		assertThat(result.passwordReset()).isFalse();
+		ArgumentCaptor<UserRepresentation> updated = ArgumentCaptor.forClass(UserRepresentation.class);
+		verify(usersResource.get("42")).update(updated.capture());
+		UserRepresentation sent = updated.getValue();
+		assertThat(sent.getEmail()).isEqualTo("Ana@Mail.com");
+		assertThat(sent.getFirstName()).isNull();
+		assertThat(sent.getLastName()).isNull();
+		assertThat(sent.isEnabled()).isNull();
+		assertThat(sent.getAttributes()).isNull();
+		assertThat(sent.getRequiredActions()).isNull();
+		assertThat(sent.getCredentials()).isNull();
+		verify(usersResource.get("42"), never()).resetPassword(any());
+	}
+
+	@Test
+	void patchRejectsUnknownRolesBeforeAnyWrite() {
+		assertThatThrownBy(() -> service.patchUser("42",
+				new UserPatchDTO("ana@new.com", null, null, null, "secret", List.of("ADMIN"), List.of("ghost"))))
+				.isInstanceOf(BadRequestException.class);
+
+		verify(usersResource.get("42"), never()).update(any());
+		verify(usersResource.get("42"), never()).resetPassword(any());
+	}
+
+	@Test
+	void patchWithoutChangesSkipsTheUpdate() {
+		UserRepresentation current = new UserRepresentation();
+		current.setFirstName("Ana");
+		when(usersResource.get("42").toRepresentation()).thenReturn(current);
+
+		UserPatchResult result = service.patchUser("42",
+				new UserPatchDTO(null, "Ana", null, null, null, null, null));
+
+		assertThat(result.updatedFields()).isEmpty();
+		verify(usersResource.get("42"), never()).update(any());
+	}
+
+	@Test
+	void bulkDeleteReportsMissingUsersPerId() {
+		UserResource missing = usersResource.get("missing");
+		doThrow(new NotFoundException()).when(missing).remove();
+
+		BulkResult result = service.deleteUsers(List.of("1", "missing", "1"), 4);
+
+		assertThat(result.items())
+				.extracting(item -> item.key() + ":" + item.status())
+				.containsExactly("1:" + BulkItemStatus.SUCCESS, "missing:" + BulkItemStatus.NOT_FOUND);
+		assertThat(result.succeeded()).isEqualTo(1);
+		verify(usersResource.get("1"), times(1)).remove();
+	}
+
+	@Test
+	void bulkRoleAssignmentRejectsUnknownRolesBeforeAnyCall() {
+		assertThatThrownBy(() -> service.addRealmRoles(List.of("1"), List.of("ADMIN", "ghost"), 0))
+				.isInstanceOf(BadRequestException.class);
+
+		BulkResult result = service.addRealmRoles(List.of("1", "2"), List.of("ADMIN"), 0);
+
+		assertThat(result.succeeded()).isEqualTo(2);
+		verify(usersResource.get("2").roles().realmLevel()).add(List.of(new RoleRepresentation("ADMIN", null, false)));
+	}
+
+	@Test
+	void searchAndCountPushCriteriaDownToKeycloak() {
+		UserSearchCriteria criteria = new UserSearchCriteria(" ", null, "Lopez", "@mail.com", null, true);
+		when(usersResource.count(null, "Lopez", null, "@mail.com", null, null, true, null)).thenReturn(7);
+
+		service.searchUsers(criteria, 20, 5000, true);
+
+		verify(usersResource).search(null, null, "Lopez", "@mail.com", null, null, null, 20,
+				KeyCloakService.MAX_PAGE_SIZE, true, true);
+		verify(usersResource, never()).list();
+		assertThat(service.countUsers(criteria)).isEqualTo(7);
+	}
+
+	private static UserDTO user() {
+		return new UserDTO("ana", "ana@mail.com", "Ana", "Lopez", "secret", true, List.of("ADMIN"));
+	}
+}
@@ -0,0 +1,128 @@
+package com.ibetar.keycloak.service;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.utils.KeyCloakProvider;
+import com.ibetar.keycloak.utils.KeyCloakResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ProcessingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LogoutPropagationServiceTests {
+	private static final URI END_SESSION = URI.create("http://kc/realms/test/protocol/openid-connect/logout?id_token_hint=t");
+	private RestTemplate restTemplate;
+	private RealmResource realm;
+	private UsersResource users;
+	private SimpleMeterRegistry registry;
+	private LogoutPropagationService service;
+
+	@BeforeEach
+	void setUp() {
+		restTemplate = mock(RestTemplate.class);
+		realm = mock(RealmResource.class);
+		users = mock(UsersResource.class);
+		KeyCloakProvider provider = mock(KeyCloakProvider.class);
+		when(provider.getRealmResource()).thenReturn(realm);
+		when(provider.getUserResource()).thenReturn(users);
+		KeyCloakProperties properties = new KeyCloakProperties();
+		properties.getLogout().setInitialBackoff(Duration.ofMillis(1));
+		properties.getLogout().setMaxBackoff(Duration.ofMillis(5));
+		properties.getLogout().setMaxAttempts(3);
+		properties.getLogout().setShutdownTimeout(Duration.ZERO);
+		registry = new SimpleMeterRegistry();
+		service = new LogoutPropagationService(restTemplate, provider, new KeyCloakResilience(properties, registry),
+				properties);
+		service.bindTo(registry);
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		service.close();
+	}
+
+	@Test
+	void retriesServerErrorsUntilLogoutIsPropagated() throws InterruptedException {
+		when(restTemplate.getForEntity(END_SESSION, Void.class))
+				.thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))
+				.thenReturn(ResponseEntity.noContent().build());
+
+		assertThat(service.submit(END_SESSION, "ana")).isTrue();
+
+		verify(restTemplate, timeout(2000).times(2)).getForEntity(END_SESSION, Void.class);
+		assertThat(outcome("RETRIED")).isEqualTo(1);
+		await(() -> outcome("SUCCESS") == 1);
+	}
+
+	@Test
+	void deadLettersRejectedAndExhaustedLogouts() throws InterruptedException {
+		when(restTemplate.getForEntity(END_SESSION, Void.class))
+				.thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+		service.submit(END_SESSION, "ana");
+		await(() -> outcome("DEAD_LETTER") == 1);
+		verify(restTemplate, times(1)).getForEntity(END_SESSION, Void.class);
+
+		reset(restTemplate);
+		when(restTemplate.getForEntity(END_SESSION, Void.class))
+				.thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+		service.submit(END_SESSION, "bob");
+		await(() -> outcome("DEAD_LETTER") == 2);
+		verify(restTemplate, times(3)).getForEntity(END_SESSION, Void.class);
+	}
+
+	@Test
+	void bearerLogoutEndsTheKeycloakSessionThroughTheAdminApi() throws InterruptedException {
+		doThrow(new ProcessingException("connection reset"))
+				.doNothing()
+				.when(realm).deleteSession("sid-1", false);
+
+		assertThat(service.endSession("sid-1", "ana")).isTrue();
+
+		verify(realm, timeout(2000).times(2)).deleteSession("sid-1", false);
+		await(() -> outcome("SUCCESS") == 1);
+		assertThat(outcome("RETRIED")).isEqualTo(1);
+	}
+
+	@Test
+	void bearerLogoutWithoutSessionEndsEverySessionOfTheUser() throws InterruptedException {
+		UserResource user = mock(UserResource.class);
+		when(users.get("ana-id")).thenReturn(user);
+		doThrow(new NotFoundException()).when(realm).deleteSession("gone", false);
+
+		service.endSession(null, "ana-id");
+		service.endSession("gone", "bob-id");
+
+		verify(user, timeout(2000)).logout();
+		// A session that has already ended counts as propagated
+		await(() -> outcome("SUCCESS") == 2);
+		assertThat(outcome("DEAD_LETTER")).isZero();
+	}
+
+	private double outcome(String outcome) {
+		return registry.get("keycloak.logout.propagations").tag("outcome", outcome).functionCounter().count();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("condition met in time").isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.ibetar.keycloak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.entity.BulkItemResult;
+import com.ibetar.keycloak.entity.BulkItemStatus;
+import com.ibetar.keycloak.entity.BulkResult;
+import com.ibetar.keycloak.entity.ImportFormat;
+import com.ibetar.keycloak.entity.ImportRequest;
+import com.ibetar.keycloak.entity.ImportStatus;
+import com.ibetar.keycloak.entity.UserDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTests {
+	private static final String USERS = """
+			{"username":"ana","enabled":true}
+			{"username":"bob","enabled":true}
+			{"username":"eve","enabled":true}
+			""";
+
+	@TempDir
+	Path directory;
+	private KeyCloakDao dao;
+	private UserImportService service;
+
+	@BeforeEach
+	void setUp() {
+		dao = mock(KeyCloakDao.class);
+		KeyCloakProperties properties = new KeyCloakProperties();
+		properties.getImports().setDirectory(directory);
+		properties.getImports().setChunkSize(2);
+		service = new UserImportService(dao, properties, new ObjectMapper(), Runnable::run);
+	}
+
+	@Test
+	void unavailableKeycloakStopsTheImportAtTheStartOfTheChunk() throws Exception {
+		when(dao.createUsers(any(), anyInt()))
+				.thenAnswer(invocation -> result(invocation.getArgument(0), BulkItemStatus.SUCCESS))
+				.thenAnswer(invocation -> result(invocation.getArgument(0), BulkItemStatus.UNAVAILABLE));
+
+		ImportStatus started = upload();
+
+		ImportStatus failed = service.findImport(started.id());
+		assertThat(failed.state()).isEqualTo("FAILED");
+		assertThat(failed.processed()).isEqualTo(2);
+		assertThat(Files.readString(directory.resolve("users.ndjson.checkpoint"))).contains("processed=2");
+
+		doAnswer(invocation -> result(invocation.getArgument(0), BulkItemStatus.SUCCESS))
+				.when(dao).createUsers(any(), anyInt());
+		ImportStatus resumed = service.findImport(service.startImport(
+				new ImportRequest("users.ndjson", ImportFormat.NDJSON, 0)).id());
+
+		assertThat(resumed.state()).isEqualTo("COMPLETED");
+		assertThat(resumed.succeeded()).isEqualTo(3);
+		assertThat(directory.resolve("users.ndjson.checkpoint")).doesNotExist();
+	}
+
+	@Test
+	void uploadLeavesNoTemporaryFileBehind() throws Exception {
+		when(dao.createUsers(any(), anyInt()))
+				.thenAnswer(invocation -> result(invocation.getArgument(0), BulkItemStatus.SUCCESS));
+
+		assertThat(service.findImport(upload().id()).state()).isEqualTo("COMPLETED");
+
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files).extracting(path -> path.getFileName().toString()).containsExactly("users.ndjson");
+		}
+	}
+
+	@Test
+	void malformedRecordsAreCountedAsFailedAndSkipped() throws Exception {
+		when(dao.createUsers(any(), anyInt()))
+				.thenAnswer(invocation -> result(invocation.getArgument(0), BulkItemStatus.SUCCESS));
+		Files.writeString(directory.resolve("users.ndjson"), """
+				{"username":"ana","enabled":true}
+				{"username":
+				{"enabled":true}
+				{"username":"bob","enabled":true}
+				""");
+
+		ImportStatus status = service.findImport(service.startImport(
+				new ImportRequest("users.ndjson", ImportFormat.NDJSON, 0)).id());
+
+		assertThat(status.state()).isEqualTo("COMPLETED");
+		assertThat(status.processed()).isEqualTo(4);
+		assertThat(status.succeeded()).isEqualTo(2);
+		assertThat(status.failed()).isEqualTo(2);
+	}
+
+	private ImportStatus upload() {
+		return service.uploadAndImport("users.ndjson", ImportFormat.NDJSON, 0,
+				new ByteArrayInputStream(USERS.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static BulkResult result(Stream<UserDTO> users, BulkItemStatus status) {
+		List<BulkItemResult> items = users
+				.map(user -> new BulkItemResult(user.username(), status, null, status.name()))
+				.toList();
+		return BulkResult.of(items);
+	}
+}
@@ -0,0 +1,105 @@
+package com.ibetar.keycloak.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.core.Response;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdminRequestMetricsFilterTests {
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final ExecutorService handlers = Executors.newCachedThreadPool();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private HttpServer server;
+	private Client client;
+	private String baseUrl;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/admin/realms/test/users", exchange -> {
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.createContext("/admin/realms/test/slow", exchange -> {
+			try {
+				release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.setExecutor(handlers);
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+		AdminRequestMetricsFilter metrics = new AdminRequestMetricsFilter(registry);
+		client = new ResteasyClientBuilderImpl()
+				.httpEngine(new TimeoutAwareHttpEngine(HttpClientBuilder.create().build(), metrics))
+				.register(metrics)
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		client.close();
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	@Test
+	void recordsCallsWithAndWithoutResponse() throws Exception {
+		try (Response response = client.target(baseUrl + "/admin/realms/test/users").request().get()) {
+			assertThat(response.getStatus()).isEqualTo(200);
+		}
+		assertThatThrownBy(() -> TimeoutAwareHttpEngine.withTimeout(Duration.ofMillis(200),
+				() -> client.target(baseUrl + "/admin/realms/test/slow").request().get()))
+				.isInstanceOf(ProcessingException.class);
+		int closedPort;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			closedPort = socket.getLocalPort();
+		}
+		assertThatThrownBy(() -> client.target("http://127.0.0.1:" + closedPort + "/admin/realms/test/users")
+				.request().get())
+				.isInstanceOf(ProcessingException.class);
+
+		assertThat(count("SUCCESS", "200")).isEqualTo(1);
+		assertThat(count("TIMEOUT", "NONE")).isEqualTo(1);
+		assertThat(count("IO_ERROR", "NONE")).isEqualTo(1);
+	}
+
+	@Test
+	void classifiesPoolCheckoutTimeoutsApart() {
+		assertThat(AdminRequestMetricsFilter.failureOutcome(
+				new ProcessingException(new ConnectionPoolTimeoutException("Timeout waiting for connection"))))
+				.isEqualTo("POOL_TIMEOUT");
+		assertThat(AdminRequestMetricsFilter.failureOutcome(new ProcessingException(new SocketTimeoutException())))
+				.isEqualTo("TIMEOUT");
+	}
+
+	private long count(String outcome, String status) {
+		return registry.get(AdminRequestMetricsFilter.METRIC_NAME)
+				.tags("outcome", outcome, "status", status)
+				.timer().count();
+	}
+}
@@ -0,0 +1,27 @@
+package com.ibetar.keycloak.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+	@Test
+	void neverMissesAddedKeysAndKeepsFalsePositivesNearTarget() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("token-" + i, 1);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("token-" + i, 1)).isTrue();
+			if (filter.mightContain("other-" + i, 1)) {
+				falsePositives++;
+			}
+		}
+
+		assertThat(falsePositives).isLessThan(300);
+		assertThat(filter.mightContain("token-1", 2)).isFalse();
+	}
+}
@@ -0,0 +1,49 @@
+package com.ibetar.keycloak.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedPipelineTests {
+
+	@Test
+	void keepsInputOrderAndBoundsConcurrency() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		try {
+			List<String> results = BoundedPipeline.run(
+					IntStream.range(0, 200).boxed(),
+					4,
+					executor,
+					i -> {
+						maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+						try {
+							Thread.sleep(1);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						inFlight.decrementAndGet();
+						if (i % 50 == 0) {
+							throw new IllegalStateException("boom " + i);
+						}
+						return "ok " + i;
+					},
+					(i, e) -> e.getMessage());
+
+			assertThat(results).hasSize(200);
+			assertThat(results.get(0)).isEqualTo("boom 0");
+			assertThat(results.get(1)).isEqualTo("ok 1");
+			assertThat(results.get(199)).isEqualTo("ok 199");
+			assertThat(maxInFlight.get()).isLessThanOrEqualTo(4);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
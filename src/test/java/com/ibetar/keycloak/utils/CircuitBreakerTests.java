@@ -0,0 +1,53 @@
+package com.ibetar.keycloak.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTests {
+
+	@Test
+	void opensOnceFailureRateReachesThreshold() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 50, 4, 10, Duration.ofMinutes(1), 1);
+		breaker.onSuccess();
+		breaker.onFailure();
+		breaker.onSuccess();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		breaker.onFailure();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire()).isFalse();
+		assertThat(breaker.getOpenedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void closesAfterSuccessfulTrialCalls() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 50, 1, 10, Duration.ZERO, 2);
+		breaker.onFailure();
+
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.tryAcquire()).isFalse();
+		breaker.onSuccess();
+		breaker.onSuccess();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void ignoredTrialCallGivesItsPermitBackWithoutClosing() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 50, 1, 10, Duration.ZERO, 1);
+		breaker.onFailure();
+
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.tryAcquire()).isFalse();
+		breaker.onIgnored();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+}
@@ -0,0 +1,127 @@
+package com.ibetar.keycloak.utils;
+
+import com.ibetar.keycloak.config.KeyCloakProperties;
+import com.ibetar.keycloak.exception.UpstreamUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyCloakResilienceTests {
+	private KeyCloakProperties properties;
+	private SimpleMeterRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		properties = new KeyCloakProperties();
+		properties.getResilience().getRetry().setInitialBackoff(Duration.ofMillis(1));
+		properties.getResilience().getRetry().setMaxBackoff(Duration.ofMillis(1));
+		registry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void retriesReadsOnServerErrorsOnly() {
+		KeyCloakResilience resilience = new KeyCloakResilience(properties, registry);
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = resilience.read("users.search", () -> {
+			if (calls.incrementAndGet() < 3) {
+				throw new ServiceUnavailableException();
+			}
+			return "ok";
+		});
+
+		assertThat(result).isEqualTo("ok");
+		assertThat(registry.counter("keycloak.resilience.retries", "operation", "users.search").count()).isEqualTo(2);
+
+		calls.set(0);
+		assertThatThrownBy(() -> resilience.read("users.get", () -> {
+			calls.incrementAndGet();
+			throw new NotFoundException();
+		})).isInstanceOf(NotFoundException.class);
+		assertThat(calls).hasValue(1);
+	}
+
+	@Test
+	void neverRetriesWrites() {
+		KeyCloakResilience resilience = new KeyCloakResilience(properties, registry);
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThatThrownBy(() -> resilience.write("users.delete", () -> {
+			calls.incrementAndGet();
+			throw new ProcessingException("connection reset");
+		})).isInstanceOf(ProcessingException.class);
+		assertThat(calls).hasValue(1);
+	}
+
+	@Test
+	void failsFastOnceCircuitIsOpen() {
+		KeyCloakProperties.Breaker breaker = properties.getResilience().getCircuitBreaker();
+		breaker.setMinimumCalls(2);
+		properties.getResilience().getRetry().setMaxAttempts(1);
+		KeyCloakResilience resilience = new KeyCloakResilience(properties, registry);
+		AtomicInteger calls = new AtomicInteger();
+		Runnable failing = () -> {
+			calls.incrementAndGet();
+			throw new ServiceUnavailableException();
+		};
+		for (int i = 0; i < 2; i++) {
+			assertThatThrownBy(() -> resilience.write("users.update", failing))
+					.isInstanceOf(ServiceUnavailableException.class);
+		}
+
+		assertThatThrownBy(() -> resilience.write("users.update", failing))
+				.isInstanceOf(UpstreamUnavailableException.class);
+		assertThat(calls).hasValue(2);
+		assertThat(resilience.getWriteCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(registry.get("keycloak.resilience.circuit.state").tag("kind", "write").gauge().value()).isEqualTo(1);
+		// failing writes leave reads alone
+		assertThat(resilience.getReadCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(resilience.read("users.get", () -> "ok")).isEqualTo("ok");
+	}
+
+	@Test
+	void localErrorsDoNotCloseAHalfOpenCircuit() {
+		KeyCloakProperties.Breaker breaker = properties.getResilience().getCircuitBreaker();
+		breaker.setMinimumCalls(1);
+		breaker.setOpenDuration(Duration.ZERO);
+		breaker.setHalfOpenCalls(1);
+		KeyCloakResilience resilience = new KeyCloakResilience(properties, registry);
+		assertThatThrownBy(() -> resilience.write("users.update", () -> {
+			throw new ServiceUnavailableException();
+		})).isInstanceOf(ServiceUnavailableException.class);
+
+		assertThatThrownBy(() -> resilience.write("users.update", () -> {
+			throw new IllegalStateException("bug on this side");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(resilience.getWriteCircuitState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+	}
+
+	@Test
+	void poolCheckoutTimeoutsDoNotCountAgainstKeycloak() {
+		properties.getResilience().getCircuitBreaker().setMinimumCalls(2);
+		KeyCloakResilience resilience = new KeyCloakResilience(properties, registry);
+
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> resilience.read("users.get", () -> {
+				throw new ProcessingException(new ConnectionPoolTimeoutException("Timeout waiting for connection"));
+			})).isInstanceOf(UpstreamUnavailableException.class);
+		}
+
+		assertThat(resilience.getReadCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(registry.get("keycloak.resilience.limit").tag("kind", "read").gauge().value())
+				.isEqualTo(properties.getResilience().getLimiter().getInitialLimit());
+		assertThat(registry.counter("keycloak.resilience.rejections", "kind", "read", "reason", "pool").count())
+				.isEqualTo(3);
+	}
+}
@@ -0,0 +1,89 @@
+package com.ibetar.keycloak.utils;
+
+import com.ibetar.keycloak.config.HttpClientProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PooledHttpClientFactoryTests {
+	private HttpServer server;
+	private PooledHttpClientFactory factory;
+	private String baseUrl;
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final ExecutorService handlers = Executors.newCachedThreadPool();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/fast", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			exchange.sendResponseHeaders(200, 2);
+			exchange.getResponseBody().write("ok".getBytes());
+			exchange.close();
+		});
+		server.createContext("/slow", exchange -> {
+			try {
+				// Answers only once the test is over, well past any read timeout
+				release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.setExecutor(handlers);
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+		HttpClientProperties properties = new HttpClientProperties();
+		HttpClientProperties.Route route = new HttpClientProperties.Route();
+		// Wide enough that scheduling jitter cannot fail the fast calls
+		route.setReadTimeout(Duration.ofSeconds(2));
+		route.setMaxConnections(3);
+		properties.getRoutes().put(baseUrl, route);
+		factory = new PooledHttpClientFactory(properties);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		release.countDown();
+		factory.close();
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	@Test
+	void appliesRouteTimeoutAndReusesPooledConnections() {
+		RestTemplate restTemplate = new RestTemplate(factory.requestFactory());
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		factory.bindTo(registry);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(restTemplate.getForObject(baseUrl + "/fast", String.class)).isEqualTo("ok");
+		}
+		assertThat(registry.get("httpcomponents.httpclient.pool.route.connections")
+				.tags("route", baseUrl, "state", "available").gauge().value()).isEqualTo(1);
+		assertThat(registry.get("httpcomponents.httpclient.pool.route.connections")
+				.tags("route", baseUrl, "state", "leased").gauge().value()).isZero();
+		assertThatThrownBy(() -> restTemplate.getForObject(baseUrl + "/slow", String.class))
+				.isInstanceOf(ResourceAccessException.class);
+		HttpRoute route = new HttpRoute(new HttpHost("http", "127.0.0.1", server.getAddress().getPort()));
+		assertThat(factory.getConnectionManager().getMaxPerRoute(route)).isEqualTo(3);
+	}
+}
@@ -0,0 +1,64 @@
+package com.ibetar.keycloak.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+	@Test
+	void concurrentIdenticalCallsShareOneExecution() throws Exception {
+		SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+		AtomicInteger calls = new AtomicInteger();
+		int callers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		try {
+			List<CompletableFuture<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				results.add(CompletableFuture.supplyAsync(() -> flight.execute("key", () -> {
+					calls.incrementAndGet();
+					// Holds the call open until every other caller has joined it
+					long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+					while (flight.getMergedCount() < callers - 1 && System.nanoTime() < deadline) {
+						Thread.onSpinWait();
+					}
+					return 42;
+				}), executor));
+			}
+
+			for (CompletableFuture<Integer> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+			}
+			assertThat(calls).hasValue(1);
+			assertThat(flight.getExecutedCount()).isEqualTo(1);
+			assertThat(flight.getMergedCount()).isEqualTo(callers - 1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void completedCallsAreNotReused() {
+		SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+		AtomicInteger calls = new AtomicInteger();
+
+		flight.execute("key", calls::incrementAndGet);
+		assertThatThrownBy(() -> flight.execute("key", () -> {
+			throw new IllegalStateException("boom");
+		})).isInstanceOf(IllegalStateException.class);
+		int result = flight.execute("key", calls::incrementAndGet);
+
+		assertThat(result).isEqualTo(2);
+		assertThat(flight.getExecutedCount()).isEqualTo(3);
+		assertThat(flight.getMergedCount()).isZero();
+	}
+}
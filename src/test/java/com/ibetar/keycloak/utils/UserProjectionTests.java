@@ -0,0 +1,55 @@
+package com.ibetar.keycloak.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibetar.keycloak.entity.UserSummary;
+import com.ibetar.keycloak.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserProjectionTests {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void writesOnlyRequestedNonNullFields() throws Exception {
+		UserProjection projection = UserProjection.of(null, "username, email,attributes,id");
+
+		String json = objectMapper.writeValueAsString(projection.apply(List.of(user())));
+
+		assertThat(json).isEqualTo("[{\"username\":\"jdoe\",\"attributes\":{\"team\":[\"core\"]},\"id\":\"42\"}]");
+	}
+
+	@Test
+	void compactViewLeavesOutNullFields() throws Exception {
+		String json = objectMapper.writeValueAsString(UserProjection.COMPACT.apply(user()));
+
+		assertThat(json).isEqualTo("{\"id\":\"42\",\"username\":\"jdoe\",\"firstName\":\"John\",\"enabled\":true}");
+	}
+
+	@Test
+	void selectsViewAndRejectsUnknownFields() {
+		assertThat(UserProjection.of(null, null)).isSameAs(UserProjection.FULL);
+		assertThat(UserProjection.of("compact", "")).isSameAs(UserProjection.COMPACT);
+		assertThat(UserProjection.COMPACT.apply(user()))
+				.isEqualTo(new UserSummary("42", "jdoe", null, "John", null, true, null));
+		assertThatThrownBy(() -> UserProjection.of(null, "id,credentials"))
+				.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> UserProjection.of("tiny", null))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	private static UserRepresentation user() {
+		UserRepresentation user = new UserRepresentation();
+		user.setId("42");
+		user.setUsername("jdoe");
+		user.setFirstName("John");
+		user.setEnabled(true);
+		user.setAttributes(Map.of("team", List.of("core")));
+		return user;
+	}
+}
@@ -0,0 +1,81 @@
+package com.ibetar.keycloak.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibetar.keycloak.entity.ImportFormat;
+import com.ibetar.keycloak.entity.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserRecordReaderTests {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void resumesCsvFromOffsetAfterHeader() throws Exception {
+		Path file = directory.resolve("users.csv");
+		Files.writeString(file, """
+				username,email,firstName,lastName,password,enabled,roles
+				ana,ana@mail.com,Ana,"Díaz, Jr",secret,true,ADMIN;user
+				bob,bob@mail.com,Bob,Smith,secret,false,
+				""");
+
+		long offset;
+		try (UserRecordReader reader = new UserRecordReader(file, ImportFormat.CSV, 0, objectMapper)) {
+			UserDTO first = reader.next().user();
+			assertThat(first.lastName()).isEqualTo("Díaz, Jr");
+			assertThat(first.roles()).isEqualTo(List.of("ADMIN", "user"));
+			offset = reader.getOffset();
+		}
+
+		try (UserRecordReader reader = new UserRecordReader(file, ImportFormat.CSV, offset, objectMapper)) {
+			UserDTO second = reader.next().user();
+			assertThat(second.username()).isEqualTo("bob");
+			assertThat(second.enabled()).isFalse();
+			assertThat(second.roles()).isNull();
+			assertThat(reader.next()).isNull();
+			assertThat(reader.getOffset()).isEqualTo(Files.size(file));
+		}
+	}
+
+	@Test
+	void readsNdjson() throws Exception {
+		Path file = directory.resolve("users.ndjson");
+		Files.writeString(file, """
+				{"username":"ana","enabled":true}
+
+				{"username":"bob","enabled":true,"roles":["user"]}
+				""");
+
+		try (UserRecordReader reader = new UserRecordReader(file, ImportFormat.NDJSON, 0, objectMapper)) {
+			assertThat(reader.next().user().username()).isEqualTo("ana");
+			assertThat(reader.next().user().roles()).containsExactly("user");
+			assertThat(reader.next()).isNull();
+		}
+	}
+
+	@Test
+	void reportsMalformedRecordsAndKeepsReading() throws Exception {
+		Path file = directory.resolve("users.csv");
+		String header = "username,email,password\n";
+		String broken = "ana,\"ana@mail.com,secret\n";
+		Files.writeString(file, header + broken + ",nobody@mail.com,secret\nbob,bob@mail.com,secret\n");
+
+		try (UserRecordReader reader = new UserRecordReader(file, ImportFormat.CSV, 0, objectMapper)) {
+			UserRecordReader.Entry unterminated = reader.next();
+			assertThat(unterminated.isMalformed()).isTrue();
+			assertThat(unterminated.offset()).isEqualTo(header.length());
+			assertThat(unterminated.error()).doesNotContain("secret");
+			assertThat(reader.next().error()).isEqualTo("Record has no username");
+			assertThat(reader.next().user().username()).isEqualTo("bob");
+			assertThat(reader.next()).isNull();
+		}
+	}
+}